@@ -0,0 +1,102 @@
+package com.myspendr.myspendr.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.myspendr.myspendr.dto.MovimentoResponse;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.Movimento;
+import com.myspendr.myspendr.model.TipoMovimento;
+import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.services.VariazioneSaldo;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Baseline dei percorsi caldi che non toccano il database.
+// Avvio: mvn -Pbenchmark test-compile exec:exec
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+
+    private static final String SEGRETO = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    @Param({"100", "10000"})
+    public int numeroMovimenti;
+
+    private JwtUtils jwtUtils;
+    private JwtUtils jwtUtilsSenzaCache;
+    private String token;
+    private List<Movimento> movimenti;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils(SEGRETO, 3_600_000, 10_000);
+        // Cache di dimensione 0: ogni parsing verifica di nuovo la firma
+        jwtUtilsSenzaCache = new JwtUtils(SEGRETO, 3_600_000, 0);
+        token = jwtUtils.generateJwtToken("utente@myspendr.it");
+
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        movimenti = new ArrayList<>(numeroMovimenti);
+        LocalDate oggi = LocalDate.now();
+        CategoriaMovimento[] categorie = CategoriaMovimento.values();
+        for (int i = 0; i < numeroMovimenti; i++) {
+            movimenti.add(Movimento.builder()
+                    .id((long) i)
+                    .importo(BigDecimal.valueOf(1 + (i % 500), 2))
+                    .tipo(i % 4 == 0 ? TipoMovimento.ENTRATA : TipoMovimento.USCITA)
+                    .categoria(categorie[i % categorie.length])
+                    .descrizione("movimento " + i)
+                    .data(oggi.minusDays(i % 365))
+                    .fonte(i % 2 == 0 ? "BANCA" : "CONTANTI")
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public String jwtGenerazione() {
+        return jwtUtils.generateJwtToken("utente@myspendr.it");
+    }
+
+    @Benchmark
+    public String jwtParsingConCache() {
+        return jwtUtils.getUsernameFromJwtToken(token);
+    }
+
+    @Benchmark
+    public String jwtParsingSenzaCache() {
+        return jwtUtilsSenzaCache.getUsernameFromJwtToken(token);
+    }
+
+    // Variazione di saldo accumulata come in MovimentoService.importaMovimenti prima dell'UPDATE atomico
+    @Benchmark
+    public VariazioneSaldo variazioneSaldi() {
+        VariazioneSaldo variazione = VariazioneSaldo.NESSUNA;
+        for (Movimento m : movimenti) {
+            variazione = variazione.piu(VariazioneSaldo.di(m.getTipo(), m.getFonte(), m.getImporto()));
+        }
+        return variazione;
+    }
+
+    @Benchmark
+    public List<MovimentoResponse> mappingMovimenti() {
+        return movimenti.stream().map(MovimentoResponse::new).toList();
+    }
+
+    @Benchmark
+    public byte[] serializzazioneMovimenti() throws Exception {
+        return objectMapper.writeValueAsBytes(movimenti.stream().map(MovimentoResponse::new).toList());
+    }
+}
@@ -0,0 +1,153 @@
+package com.myspendr.myspendr.loadtest;
+
+import com.myspendr.myspendr.MyspendrApplication;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.services.ExportMovimentiService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+// Export in streaming su uno storico grande: throughput in righe/s e heap vivo oltre la base durante la scrittura.
+// Avvio: mvn -Pload-test test-compile exec:exec -Dloadtest.main=com.myspendr.myspendr.loadtest.ExportBenchmark
+// Parametri (-D): loadtest.export-movimenti=200000 loadtest.export-ripetizioni=3
+public class ExportBenchmark {
+
+    // Ogni quanti byte di output forzare una GC e campionare l'heap vivo
+    private static final long CAMPIONE_OGNI_BYTE = 2L * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int movimenti = Integer.getInteger("loadtest.export-movimenti", 200_000);
+        int ripetizioni = Integer.getInteger("loadtest.export-ripetizioni", 3);
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            ConfigurableApplicationContext context = SpringApplication.run(MyspendrApplication.class,
+                    "--server.port=0",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--spring.jpa.hibernate.ddl-auto=create",
+                    "--spring.devtools.restart.enabled=false",
+                    "--spring.mail.host=localhost",
+                    "--jwt.secret=load-test-secret-load-test-secret-load-test-secret-load-test-secret",
+                    "--telegram.bot.token=load-test",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.myspendr=WARN");
+            try {
+                ExportMovimentiService exportService = context.getBean(ExportMovimentiService.class);
+                Long capitaleId = creaStorico(context.getBean(JdbcTemplate.class), movimenti);
+
+                // Riscaldamento JIT e connessioni
+                exportService.esporta(capitaleId, ExportMovimentiService.Formato.CSV, OutputStream.nullOutputStream());
+
+                for (ExportMovimentiService.Formato formato : ExportMovimentiService.Formato.values()) {
+                    for (int i = 1; i <= ripetizioni; i++) {
+                        ContaByte out = new ContaByte();
+                        long inizio = System.nanoTime();
+                        long righe = exportService.esporta(capitaleId, formato, out);
+                        double secondi = (System.nanoTime() - inizio) / 1e9;
+                        System.out.printf("📤 %-6s #%d: %d righe in %.2f s, %,d righe/s, %.1f MB/s%n", formato, i, righe,
+                                secondi, (long) (righe / secondi), out.byteScritti / secondi / (1024 * 1024));
+                    }
+
+                    MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+                    System.gc();
+                    long base = memoria.getHeapMemoryUsage().getUsed();
+                    CampionaHeap out = new CampionaHeap(memoria);
+                    exportService.esporta(capitaleId, formato, out);
+                    System.out.printf("🧠 %-6s heap vivo oltre la base: picco %.1f MB su %d campioni%n", formato,
+                            (out.piccoHeap - base) / (1024.0 * 1024), out.campioni);
+                }
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    // 🌱 Capitale con uno storico di N movimenti, descrizioni con virgola per passare dall'escaping CSV
+    private static Long creaStorico(JdbcTemplate jdbc, int movimenti) {
+        UUID userId = UUID.randomUUID();
+        LocalDate oggi = LocalDate.now();
+        jdbc.update("INSERT INTO users (id, nome, cognome, username, email, password, data_registrazione, " +
+                        "tentativi_falliti, email_confirmed) VALUES (?, 'Export', 'Test', 'export', 'export@myspendr.it', 'x', ?, 0, true)",
+                userId, Date.valueOf(oggi));
+        Long capitaleId = jdbc.queryForObject("INSERT INTO capitale (conto_bancario, liquidita, altri_fondi, totale, " +
+                "data_aggiornamento, user_id) VALUES (0, 0, 0, 0, ?, ?) RETURNING id", Long.class, Date.valueOf(oggi), userId);
+
+        CategoriaMovimento[] categorie = CategoriaMovimento.values();
+        Random random = new Random(42);
+        List<Object[]> righe = new ArrayList<>(10_000);
+        for (int i = 0; i < movimenti; i++) {
+            boolean entrata = random.nextInt(5) == 0;
+            righe.add(new Object[]{
+                    BigDecimal.valueOf(100 + random.nextInt(100_000), 2),
+                    entrata ? "ENTRATA" : "USCITA",
+                    categorie[random.nextInt(categorie.length)].name(),
+                    "movimento " + i + ", esportato",
+                    Date.valueOf(oggi.minusDays(random.nextInt(3 * 365))),
+                    random.nextBoolean() ? "BANCA" : "CONTANTI",
+                    capitaleId
+            });
+            if (righe.size() == 10_000 || i == movimenti - 1) {
+                jdbc.batchUpdate("INSERT INTO movimenti (importo, tipo, categoria, descrizione, data, fonte, capitale_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)", righe);
+                righe.clear();
+            }
+        }
+        System.out.println("🌱 Creato uno storico di " + movimenti + " movimenti");
+        return capitaleId;
+    }
+
+    private static class ContaByte extends OutputStream {
+        long byteScritti;
+
+        @Override
+        public void write(int b) {
+            byteScritti++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            byteScritti += len;
+        }
+    }
+
+    // Forza una GC a intervalli regolari di output: l'heap usato subito dopo è quello ancora raggiungibile
+    private static class CampionaHeap extends OutputStream {
+        private final MemoryMXBean memoria;
+        private long byteDaUltimoCampione;
+        long piccoHeap;
+        int campioni;
+
+        CampionaHeap(MemoryMXBean memoria) {
+            this.memoria = memoria;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            byteDaUltimoCampione += len;
+            if (byteDaUltimoCampione >= CAMPIONE_OGNI_BYTE) {
+                byteDaUltimoCampione = 0;
+                System.gc();
+                piccoHeap = Math.max(piccoHeap, memoria.getHeapMemoryUsage().getUsed());
+                campioni++;
+            }
+        }
+    }
+}
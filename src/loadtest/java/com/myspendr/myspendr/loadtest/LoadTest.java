@@ -0,0 +1,320 @@
+package com.myspendr.myspendr.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myspendr.myspendr.MyspendrApplication;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.services.RiepilogoMensileService;
+import com.myspendr.myspendr.services.SpesaMensileService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load test end-to-end: Postgres embedded, applicazione nello stesso processo, API Telegram finta.
+// Avvio: mvn -Pload-test test-compile exec:exec
+// Parametri (-D): loadtest.storici=1000,10000,100000 loadtest.concorrenza=16 loadtest.richieste=500
+//                 loadtest.login=50 loadtest.telegram-delay-ms=50 loadtest.virtual-threads=false
+//                 loadtest.stateless=false (autenticazione dai claims del token, jwt.stateless.enabled)
+//                 loadtest.login-storm=64 (client che martellano /auth/login mentre si misura /movimenti)
+// Il confronto tra i due modelli di thread con molte chiamate lente in volo è in ThreadModeBenchmark.
+public class LoadTest {
+
+    private static final String PASSWORD = "LoadTest123!";
+    private static final long CHAT_ID_BASE = 900_000_000L;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger updateId = new AtomicInteger(1);
+
+    private String baseUrl;
+
+    private record Utente(String email, long chatId, int movimenti) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest().esegui();
+    }
+
+    private void esegui() throws Exception {
+        int[] storici = parseInteri(System.getProperty("loadtest.storici", "1000,10000,100000"));
+        int concorrenza = Integer.getInteger("loadtest.concorrenza", 16);
+        int richieste = Integer.getInteger("loadtest.richieste", 500);
+        int richiesteLogin = Integer.getInteger("loadtest.login", 50);
+        long ritardoTelegram = Long.getLong("loadtest.telegram-delay-ms", 50);
+        boolean virtualThreads = Boolean.parseBoolean(System.getProperty("loadtest.virtual-threads", "false"));
+        boolean stateless = Boolean.parseBoolean(System.getProperty("loadtest.stateless", "false"));
+        int clientLoginStorm = Integer.getInteger("loadtest.login-storm", 64);
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             TelegramApiStub telegram = new TelegramApiStub(ritardoTelegram)) {
+
+            ConfigurableApplicationContext context = avviaApplicazione(postgres, telegram, virtualThreads, stateless);
+            try {
+                baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+                List<Utente> utenti = new ArrayList<>();
+                for (int i = 0; i < storici.length; i++) {
+                    utenti.add(creaUtente(context, i, storici[i]));
+                }
+                context.getBean(SpesaMensileService.class).riallinea();
+                context.getBean(RiepilogoMensileService.class).riallinea();
+
+                Misuratore misuratore = new Misuratore(concorrenza);
+                List<Misuratore.Risultato> risultati = new ArrayList<>();
+                LocalDate oggi = LocalDate.now();
+
+                for (Utente utente : utenti) {
+                    String etichetta = " [" + utente.movimenti() + " mov" + (virtualThreads ? ", virtual" : "")
+                            + (stateless ? ", stateless" : "") + "]";
+
+                    // I refresh token ottenuti dai login misurati servono poi a misurare il rinnovo (ognuno usabile una volta)
+                    Queue<String> refreshToken = new ConcurrentLinkedQueue<>();
+                    risultati.add(misuratore.misura("POST /auth/login" + etichetta, richiesteLogin, i -> {
+                        HttpResponse<String> risposta = login(utente);
+                        if (risposta.statusCode() == 200) {
+                            refreshToken.add(objectMapper.readTree(risposta.body()).get("refreshToken").asText());
+                        }
+                        return risposta.statusCode();
+                    }));
+                    risultati.add(misuratore.misura("POST /auth/refresh" + etichetta, Math.max(1, refreshToken.size()),
+                            i -> refresh(refreshToken.poll())));
+                    String token = "Bearer " + objectMapper.readTree(login(utente).body()).get("token").asText();
+
+                    // Riscaldamento JIT e cache prima delle misure
+                    misuratore.misura("warmup", Math.min(richieste, 200), i -> get("/movimenti/totale/entrate", token));
+
+                    risultati.add(misuratore.misura("GET /movimenti" + etichetta, Math.max(1, richieste / 10),
+                            i -> get("/movimenti", token)));
+                    for (String totale : List.of("entrate", "uscite", "entrate/ultimo-mese", "uscite/ultimo-mese")) {
+                        risultati.add(misuratore.misura("GET /movimenti/totale/" + totale + etichetta, richieste,
+                                i -> get("/movimenti/totale/" + totale, token)));
+                    }
+                    risultati.add(misuratore.misura("GET /budget/all" + etichetta, richieste,
+                            i -> get("/budget/all?mese=" + oggi.getMonthValue() + "&anno=" + oggi.getYear(), token)));
+                    risultati.add(misuratore.misura("GET /capitale/report/mensile" + etichetta, richieste,
+                            i -> get("/capitale/report/mensile", token)));
+                    risultati.add(misuratore.misura("GET /capitale/report/annuale" + etichetta, richieste,
+                            i -> get("/capitale/report/annuale", token)));
+                    risultati.add(misuratore.misura("POST /telegram /riepilogo" + etichetta, richieste,
+                            i -> webhook(utente.chatId(), "/riepilogo")));
+                }
+
+                risultati.addAll(misuraDuranteLoginStorm(misuratore, utenti.get(0), richieste, clientLoginStorm,
+                        virtualThreads ? " [virtual]" : ""));
+
+                System.out.println();
+                risultati.forEach(System.out::println);
+                // Con le risposte asincrone la coda di invio si svuota dopo le misure: attendo e calcolo il throughput reale
+                long inizioAttesa = System.nanoTime();
+                long attesi = (long) utenti.size() * richieste;
+                while (telegram.messaggiRicevuti() < attesi && System.nanoTime() - inizioAttesa < Duration.ofMinutes(2).toNanos()) {
+                    Thread.sleep(100);
+                }
+                System.out.println("Messaggi ricevuti dalla finta API Telegram: " + telegram.messaggiRicevuti() + "/" + attesi
+                        + " (coda svuotata " + (System.nanoTime() - inizioAttesa) / 1_000_000 + " ms dopo le misure)");
+                salvaCsv(risultati);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext avviaApplicazione(EmbeddedPostgres postgres, TelegramApiStub telegram,
+                                                             boolean virtualThreads, boolean stateless) {
+        return SpringApplication.run(MyspendrApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--jwt.stateless.enabled=" + stateless,
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.devtools.restart.enabled=false",
+                "--spring.mail.host=localhost",
+                "--jwt.secret=load-test-secret-load-test-secret-load-test-secret-load-test-secret",
+                "--jwt.access-expiration-ms=3600000",
+                "--telegram.bot.token=load-test",
+                "--telegram.api.base-url=" + telegram.baseUrl(),
+                "--logging.level.root=WARN",
+                "--logging.level.com.myspendr=WARN");
+    }
+
+    // 🌱 Utente con email confermata, capitale, budget per ogni categoria e uno storico di N movimenti
+    private Utente creaUtente(ConfigurableApplicationContext context, int indice, int numeroMovimenti) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        String passwordCifrata = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+        UUID userId = UUID.randomUUID();
+        String email = "carico" + indice + "@myspendr.it";
+        long chatId = CHAT_ID_BASE + indice;
+        LocalDate oggi = LocalDate.now();
+
+        jdbc.update("INSERT INTO users (id, nome, cognome, username, email, password, data_registrazione, " +
+                        "tentativi_falliti, email_confirmed) VALUES (?, ?, ?, ?, ?, ?, ?, 0, true)",
+                userId, "Carico", "Test" + indice, "carico" + indice, email, passwordCifrata, Date.valueOf(oggi));
+        Long capitaleId = jdbc.queryForObject("INSERT INTO capitale (conto_bancario, liquidita, altri_fondi, totale, " +
+                        "data_aggiornamento, user_id) VALUES (10000, 500, 0, 10500, ?, ?) RETURNING id",
+                Long.class, Date.valueOf(oggi), userId);
+        jdbc.update("INSERT INTO telegram_user (telegram_id, username, user_id) VALUES (?, ?, ?)",
+                chatId, "carico" + indice, userId);
+
+        CategoriaMovimento[] categorie = CategoriaMovimento.values();
+        for (CategoriaMovimento categoria : categorie) {
+            jdbc.update("INSERT INTO budget_mensile (id, user_id, categoria, limite, mese, anno) VALUES (?, ?, ?, 500, ?, ?)",
+                    UUID.randomUUID(), userId, categoria.name(), oggi.getMonthValue(), oggi.getYear());
+        }
+
+        // Storico realistico: ~1 movimento su 5 è un'entrata, date distribuite sugli ultimi 3 anni
+        Random random = new Random(indice);
+        List<Object[]> righe = new ArrayList<>(numeroMovimenti);
+        for (int i = 0; i < numeroMovimenti; i++) {
+            boolean entrata = random.nextInt(5) == 0;
+            righe.add(new Object[]{
+                    BigDecimal.valueOf(100 + random.nextInt(entrata ? 200_000 : 15_000), 2),
+                    entrata ? "ENTRATA" : "USCITA",
+                    categorie[random.nextInt(categorie.length)].name(),
+                    "movimento " + i,
+                    Date.valueOf(oggi.minusDays(random.nextInt(3 * 365))),
+                    random.nextBoolean() ? "BANCA" : "CONTANTI",
+                    capitaleId
+            });
+        }
+        jdbc.batchUpdate("INSERT INTO movimenti (importo, tipo, categoria, descrizione, data, fonte, capitale_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", righe);
+
+        System.out.println("🌱 Creato " + email + " con " + numeroMovimenti + " movimenti");
+        return new Utente(email, chatId, numeroMovimenti);
+    }
+
+    // Latenza di /movimenti mentre N client eseguono login in continuo: con l'hashing su pool limitato
+    // deve restare vicina a quella misurata a riposo, e i login in eccesso ricevono 429/503
+    private List<Misuratore.Risultato> misuraDuranteLoginStorm(Misuratore misuratore, Utente utente, int richieste,
+                                                              int clientStorm, String etichetta) throws Exception {
+        String token = "Bearer " + objectMapper.readTree(login(utente).body()).get("token").asText();
+        List<Misuratore.Risultato> risultati = new ArrayList<>();
+        risultati.add(misuratore.misura("GET /movimenti/totale/entrate a riposo" + etichetta, richieste,
+                i -> get("/movimenti/totale/entrate", token)));
+
+        AtomicBoolean attivo = new AtomicBoolean(true);
+        Map<Integer, LongAdder> esitiLogin = new ConcurrentHashMap<>();
+        ExecutorService storm = Executors.newFixedThreadPool(clientStorm);
+        for (int t = 0; t < clientStorm; t++) {
+            storm.execute(() -> {
+                while (attivo.get()) {
+                    try {
+                        esitiLogin.computeIfAbsent(login(utente).statusCode(), s -> new LongAdder()).increment();
+                    } catch (Exception e) {
+                        esitiLogin.computeIfAbsent(-1, s -> new LongAdder()).increment();
+                    }
+                }
+            });
+        }
+        try {
+            // Lascio saturare la coda di hashing prima di misurare
+            Thread.sleep(2000);
+            risultati.add(misuratore.misura("GET /movimenti/totale/entrate login storm" + etichetta, richieste,
+                    i -> get("/movimenti/totale/entrate", token)));
+            risultati.add(misuratore.misura("GET /movimenti login storm" + etichetta, Math.max(1, richieste / 10),
+                    i -> get("/movimenti", token)));
+        } finally {
+            attivo.set(false);
+            storm.shutdown();
+            storm.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        Map<Integer, Long> esiti = new TreeMap<>();
+        esitiLogin.forEach((status, conteggio) -> esiti.put(status, conteggio.sum()));
+        System.out.println("🔐 Esiti login durante lo storm (" + clientStorm + " client): " + esiti);
+        return risultati;
+    }
+
+    private HttpResponse<String> login(Utente utente) throws IOException, InterruptedException {
+        String body = objectMapper.createObjectNode()
+                .put("email", utente.email())
+                .put("password", PASSWORD)
+                .toString();
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int refresh(String refreshToken) throws IOException, InterruptedException {
+        String body = objectMapper.createObjectNode()
+                .put("refreshToken", refreshToken)
+                .toString();
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/refresh"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int get(String path, String token) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", token)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int webhook(long chatId, String testo) throws IOException, InterruptedException {
+        JsonNode update = objectMapper.readTree("""
+                {"update_id": %d,
+                 "message": {"message_id": 1, "date": 0, "text": "%s",
+                             "chat": {"id": %d, "type": "private"},
+                             "from": {"id": %d, "is_bot": false, "first_name": "Carico"}}}
+                """.formatted(updateId.getAndIncrement(), testo, chatId, chatId));
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/telegram"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(update.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static void salvaCsv(List<Misuratore.Risultato> risultati) throws IOException {
+        Path file = Path.of("target", "loadtest-results.csv");
+        Files.createDirectories(file.getParent());
+        List<String> righe = new ArrayList<>();
+        righe.add(Misuratore.Risultato.intestazioneCsv());
+        risultati.forEach(r -> righe.add(r.csv()));
+        Files.write(file, righe);
+        System.out.println("📄 Risultati salvati in " + file.toAbsolutePath());
+    }
+
+    private static int[] parseInteri(String valori) {
+        return Arrays.stream(valori.split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+}
@@ -0,0 +1,103 @@
+package com.myspendr.myspendr.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Esegue N richieste con C thread client e misura throughput, percentili e allocazioni della JVM
+class Misuratore {
+
+    interface Richiesta {
+        // Ritorna lo status HTTP
+        int esegui(int indice) throws Exception;
+    }
+
+    record Risultato(String scenario, int richieste, int errori, double throughput,
+                     double p50Ms, double p99Ms, double maxMs, long kbAllocatiPerRichiesta) {
+
+        static String intestazioneCsv() {
+            return "scenario,richieste,errori,throughput_rps,p50_ms,p99_ms,max_ms,kb_allocati_per_richiesta";
+        }
+
+        String csv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%d",
+                    scenario, richieste, errori, throughput, p50Ms, p99Ms, maxMs, kbAllocatiPerRichiesta);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-45s %7d req %5d err %9.1f req/s  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms  %7d KB/req",
+                    scenario, richieste, errori, throughput, p50Ms, p99Ms, maxMs, kbAllocatiPerRichiesta);
+        }
+    }
+
+    private final int concorrenza;
+
+    Misuratore(int concorrenza) {
+        this.concorrenza = concorrenza;
+    }
+
+    Risultato misura(String scenario, int numeroRichieste, Richiesta richiesta) throws InterruptedException {
+        long[] latenze = new long[numeroRichieste];
+        AtomicInteger prossima = new AtomicInteger();
+        AtomicInteger errori = new AtomicInteger();
+
+        long allocatiPrima = byteAllocati();
+        long inizio = System.nanoTime();
+
+        ExecutorService client = Executors.newFixedThreadPool(concorrenza);
+        for (int t = 0; t < concorrenza; t++) {
+            client.execute(() -> {
+                int i;
+                while ((i = prossima.getAndIncrement()) < numeroRichieste) {
+                    long t0 = System.nanoTime();
+                    try {
+                        int status = richiesta.esegui(i);
+                        if (status >= 400) {
+                            errori.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errori.incrementAndGet();
+                    }
+                    latenze[i] = System.nanoTime() - t0;
+                }
+            });
+        }
+        client.shutdown();
+        client.awaitTermination(1, TimeUnit.HOURS);
+
+        long durata = System.nanoTime() - inizio;
+        long allocati = byteAllocati() - allocatiPrima;
+
+        Arrays.sort(latenze);
+        return new Risultato(scenario, numeroRichieste, errori.get(),
+                numeroRichieste / (durata / 1e9),
+                percentile(latenze, 0.50), percentile(latenze, 0.99), latenze[latenze.length - 1] / 1e6,
+                allocati / numeroRichieste / 1024);
+    }
+
+    private static double percentile(long[] ordinate, double p) {
+        int indice = (int) Math.ceil(p * ordinate.length) - 1;
+        return ordinate[Math.max(0, indice)] / 1e6;
+    }
+
+    // Byte allocati dai thread vivi: i thread client terminano prima della seconda lettura,
+    // quindi il valore riflette soprattutto le allocazioni lato server (Tomcat e worker)
+    private static long byteAllocati() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                && mx.isThreadAllocatedMemorySupported()) {
+            long totale = 0;
+            for (long allocati : mx.getThreadAllocatedBytes(mx.getAllThreadIds())) {
+                if (allocati > 0) {
+                    totale += allocati;
+                }
+            }
+            return totale;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.myspendr.myspendr.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finto server SMTP su localhost: accetta ogni messaggio e risponde alla fine del DATA dopo un ritardo configurabile
+class SmtpStub implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final ExecutorService connessioni = Executors.newCachedThreadPool();
+    private final AtomicLong messaggiRicevuti = new AtomicLong();
+    private final long ritardoMs;
+
+    SmtpStub(long ritardoMs) throws IOException {
+        this.ritardoMs = ritardoMs;
+        this.server = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread accettazione = new Thread(this::accetta, "smtp-stub");
+        accettazione.setDaemon(true);
+        accettazione.start();
+    }
+
+    int porta() {
+        return server.getLocalPort();
+    }
+
+    long messaggiRicevuti() {
+        return messaggiRicevuti.get();
+    }
+
+    private void accetta() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connessioni.execute(() -> sessione(socket));
+            } catch (IOException e) {
+                // server chiuso
+            }
+        }
+    }
+
+    // Il minimo del protocollo usato da Jakarta Mail: EHLO, MAIL, RCPT, DATA, QUIT
+    private void sessione(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            rispondi(out, "220 localhost ESMTP stub");
+            String riga;
+            while ((riga = in.readLine()) != null) {
+                String comando = riga.length() >= 4 ? riga.substring(0, 4).toUpperCase() : riga.toUpperCase();
+                switch (comando) {
+                    case "EHLO", "HELO" -> rispondi(out, "250 localhost");
+                    case "DATA" -> {
+                        rispondi(out, "354 fine con <CRLF>.<CRLF>");
+                        while ((riga = in.readLine()) != null && !riga.equals(".")) {
+                            // il contenuto del messaggio non interessa
+                        }
+                        Thread.sleep(ritardoMs);
+                        messaggiRicevuti.incrementAndGet();
+                        rispondi(out, "250 accettato");
+                    }
+                    case "QUIT" -> {
+                        rispondi(out, "221 chiusura");
+                        return;
+                    }
+                    default -> rispondi(out, "250 ok");
+                }
+            }
+        } catch (IOException e) {
+            // connessione chiusa dal client
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rispondi(PrintWriter out, String risposta) {
+        out.print(risposta + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connessioni.shutdownNow();
+    }
+}
@@ -0,0 +1,154 @@
+package com.myspendr.myspendr.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Tempo alla prima richiesta servita, dall'avvio del processo JVM, per le varianti di lancio del jar.
+// Prerequisito: mvn -Pstartup package -DskipTests   (jar estratto e archivio CDS in target/startup)
+// Avvio:        mvn -Pload-test test-compile exec:exec -Dloadtest.main=com.myspendr.myspendr.loadtest.StartupBenchmark
+// Parametri (-D): startup.ripetizioni=5 startup.jar=target/<jar> startup.dir=target/startup
+public class StartupBenchmark {
+
+    private static final Duration TIMEOUT_AVVIO = Duration.ofMinutes(2);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    private record Variante(String nome, Path jar, List<String> opzioniJvm) {
+    }
+
+    private record Risultato(String variante, long minimoMs, long medianaMs, long massimoMs) {
+        @Override
+        public String toString() {
+            return String.format("%-22s min %6d ms   mediana %6d ms   max %6d ms", variante, minimoMs, medianaMs, massimoMs);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().esegui();
+    }
+
+    private void esegui() throws Exception {
+        int ripetizioni = Integer.getInteger("startup.ripetizioni", 5);
+        Path jarCompleto = Path.of(System.getProperty("startup.jar", "target/myspendr-backend-0.0.1-SNAPSHOT.jar"));
+        Path cartella = Path.of(System.getProperty("startup.dir", "target/startup"));
+        Path jarEstratto = cartella.resolve(jarCompleto.getFileName());
+        Path archivioCds = cartella.resolve("application.jsa");
+
+        if (!Files.exists(jarEstratto) || !Files.exists(archivioCds)) {
+            throw new IllegalStateException("Manca la build di avvio in " + cartella + ": eseguire prima mvn -Pstartup package -DskipTests");
+        }
+
+        List<Variante> varianti = List.of(
+                new Variante("jar", jarCompleto, List.of()),
+                new Variante("jar estratto", jarEstratto, List.of()),
+                new Variante("estratto + CDS", jarEstratto, List.of("-XX:SharedArchiveFile=" + archivioCds)));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             TelegramApiStub telegram = new TelegramApiStub(0)) {
+
+            List<String> argomentiApp = List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--spring.jpa.hibernate.ddl-auto=update",
+                    "--spring.mail.host=localhost",
+                    "--jwt.secret=startup-test-secret-startup-test-secret-startup-test-secret-startup",
+                    "--jwt.access-expiration-ms=3600000",
+                    "--telegram.bot.token=startup-test",
+                    "--telegram.api.base-url=" + telegram.baseUrl());
+
+            // Un avvio a vuoto crea lo schema, così nessuna variante paga la DDL
+            misuraAvvio(varianti.get(0), argomentiApp);
+
+            List<Risultato> risultati = new ArrayList<>();
+            for (Variante variante : varianti) {
+                long[] tempi = new long[ripetizioni];
+                for (int i = 0; i < ripetizioni; i++) {
+                    tempi[i] = misuraAvvio(variante, argomentiApp);
+                    System.out.println("⏱ " + variante.nome() + " #" + (i + 1) + ": " + tempi[i] + " ms");
+                }
+                Arrays.sort(tempi);
+                risultati.add(new Risultato(variante.nome(), tempi[0], tempi[tempi.length / 2], tempi[tempi.length - 1]));
+            }
+
+            System.out.println();
+            risultati.forEach(System.out::println);
+            salvaCsv(risultati);
+        }
+    }
+
+    // Avvia il jar in un processo separato e attende la prima risposta HTTP; restituisce i millisecondi trascorsi
+    private long misuraAvvio(Variante variante, List<String> argomentiApp) throws IOException, InterruptedException {
+        int porta = portaLibera();
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        comando.addAll(variante.opzioniJvm());
+        comando.add("-jar");
+        comando.add(variante.jar().toString());
+        comando.addAll(argomentiApp);
+        comando.add("--server.port=" + porta);
+
+        Path log = Path.of("target", "startup-" + variante.nome().replaceAll("[^a-zA-Z]+", "-") + ".log");
+        Process processo = new ProcessBuilder(comando)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        long inizio = System.nanoTime();
+        try {
+            HttpRequest richiesta = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + porta + "/actuator/health"))
+                    .timeout(Duration.ofSeconds(5))
+                    .build();
+            while (System.nanoTime() - inizio < TIMEOUT_AVVIO.toNanos()) {
+                if (!processo.isAlive()) {
+                    throw new IllegalStateException("Il processo è terminato durante l'avvio, vedere " + log);
+                }
+                try {
+                    http.send(richiesta, HttpResponse.BodyHandlers.discarding());
+                    return (System.nanoTime() - inizio) / 1_000_000;
+                } catch (IOException e) {
+                    Thread.sleep(10);
+                }
+            }
+            throw new IllegalStateException("Avvio oltre " + TIMEOUT_AVVIO + ", vedere " + log);
+        } finally {
+            processo.destroy();
+            if (!processo.waitFor(30, TimeUnit.SECONDS)) {
+                processo.destroyForcibly();
+            }
+        }
+    }
+
+    private static int portaLibera() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void salvaCsv(List<Risultato> risultati) throws IOException {
+        Path file = Path.of("target", "startup-results.csv");
+        Files.createDirectories(file.getParent());
+        List<String> righe = new ArrayList<>();
+        righe.add("variante,min_ms,mediana_ms,max_ms");
+        for (Risultato r : risultati) {
+            righe.add(String.join(",", r.variante(), String.valueOf(r.minimoMs()),
+                    String.valueOf(r.medianaMs()), String.valueOf(r.massimoMs())));
+        }
+        Files.write(file, righe);
+        System.out.println("📄 Risultati salvati in " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,54 @@
+package com.myspendr.myspendr.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finta API di Telegram su localhost: risponde ok a ogni sendMessage dopo un ritardo configurabile
+class TelegramApiStub implements AutoCloseable {
+
+    private static final byte[] RISPOSTA = "{\"ok\":true,\"result\":{}}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final AtomicLong messaggiRicevuti = new AtomicLong();
+
+    TelegramApiStub(long ritardoMs) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (ritardoMs > 0) {
+                try {
+                    Thread.sleep(ritardoMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            messaggiRicevuti.incrementAndGet();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RISPOSTA.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(RISPOSTA);
+            }
+        });
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long messaggiRicevuti() {
+        return messaggiRicevuti.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,193 @@
+package com.myspendr.myspendr.loadtest;
+
+import com.myspendr.myspendr.MyspendrApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Thread di piattaforma contro virtual thread con molte chiamate lente in volo, stampati fianco a fianco:
+// - webhook Telegram: la risposta parte in coda, conta quanto ci mette la coda di invio a svuotarsi
+// - registrazione: l'email di verifica è inviata via SMTP dentro la richiesta
+// Avvio: mvn -Pload-test test-compile exec:exec -Dloadtest.main=com.myspendr.myspendr.loadtest.ThreadModeBenchmark
+// Parametri (-D): loadtest.lente-ritardo-ms=300 loadtest.lente-richieste=300 loadtest.lente-concorrenza=128
+public class ThreadModeBenchmark {
+
+    private static final long CHAT_ID_BASE = 900_000_000L;
+    private static final int CHAT = 200;
+    private static final Duration ATTESA_MASSIMA_CODA = Duration.ofMinutes(5);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicInteger progressivo = new AtomicInteger(1);
+
+    private String baseUrl;
+
+    private record Esito(Misuratore.Risultato webhook, long codaSvuotataMs, double inviiAlSecondo, long consegnati,
+                         long scartati, Misuratore.Risultato registrazioni, long email) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ThreadModeBenchmark().esegui();
+    }
+
+    private void esegui() throws Exception {
+        long ritardo = Long.getLong("loadtest.lente-ritardo-ms", 300);
+        int richieste = Integer.getInteger("loadtest.lente-richieste", 300);
+        int concorrenza = Integer.getInteger("loadtest.lente-concorrenza", 128);
+
+        Esito piattaforma;
+        Esito virtuali;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            piattaforma = misuraModalita(postgres, false, ritardo, richieste, concorrenza);
+            virtuali = misuraModalita(postgres, true, ritardo, richieste, concorrenza);
+        }
+
+        System.out.println();
+        System.out.printf("Chiamate lente: %d ms, %d richieste, %d client%n", ritardo, richieste, concorrenza);
+        System.out.printf("%-40s %14s %14s%n", "", "piattaforma", "virtual");
+        riga("POST /telegram req/s", piattaforma, virtuali, e -> formato(e.webhook().throughput()));
+        riga("POST /telegram p99 ms", piattaforma, virtuali, e -> formato(e.webhook().p99Ms()));
+        riga("POST /telegram errori", piattaforma, virtuali, e -> String.valueOf(e.webhook().errori()));
+        riga("sendMessage consegnati/s", piattaforma, virtuali, e -> formato(e.inviiAlSecondo()));
+        riga("coda invii svuotata dopo (ms)", piattaforma, virtuali, e -> String.valueOf(e.codaSvuotataMs()));
+        riga("sendMessage consegnati / scartati", piattaforma, virtuali, e -> e.consegnati() + " / " + e.scartati());
+        riga("POST /auth/register req/s", piattaforma, virtuali, e -> formato(e.registrazioni().throughput()));
+        riga("POST /auth/register p99 ms", piattaforma, virtuali, e -> formato(e.registrazioni().p99Ms()));
+        riga("POST /auth/register errori", piattaforma, virtuali, e -> String.valueOf(e.registrazioni().errori()));
+        riga("email ricevute dallo SMTP", piattaforma, virtuali, e -> String.valueOf(e.email()));
+    }
+
+    private Esito misuraModalita(EmbeddedPostgres postgres, boolean virtualThreads, long ritardo, int richieste,
+                                 int concorrenza) throws Exception {
+        String modalita = virtualThreads ? "virtual" : "piattaforma";
+        try (TelegramApiStub telegram = new TelegramApiStub(ritardo);
+             SmtpStub smtp = new SmtpStub(ritardo)) {
+            ConfigurableApplicationContext context = avviaApplicazione(postgres, telegram, smtp, virtualThreads);
+            try {
+                baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                creaUtentiTelegram(context.getBean(JdbcTemplate.class));
+                Misuratore misuratore = new Misuratore(concorrenza);
+
+                // Riscaldamento JIT, poi attendo che anche i suoi invii siano usciti
+                misuratore.misura("warmup", CHAT, i -> webhook(CHAT_ID_BASE + i));
+                attendiCoda(telegram, CHAT);
+
+                long inizio = System.nanoTime();
+                Misuratore.Risultato webhook = misuratore.misura("POST /telegram [" + modalita + "]", richieste,
+                        i -> webhook(CHAT_ID_BASE + i % CHAT));
+                long fineMisura = System.nanoTime();
+                long scartati = (long) context.getBean(MeterRegistry.class)
+                        .counter("myspendr.telegram.send.dropped").count();
+                long attesi = CHAT + richieste - scartati;
+                attendiCoda(telegram, attesi);
+                long fineCoda = System.nanoTime();
+                long consegnati = telegram.messaggiRicevuti() - CHAT;
+
+                Misuratore.Risultato registrazioni = misuratore.misura("POST /auth/register [" + modalita + "]", richieste,
+                        i -> registra(modalita + "-" + progressivo.getAndIncrement()));
+
+                Esito esito = new Esito(webhook, (fineCoda - fineMisura) / 1_000_000,
+                        consegnati / ((fineCoda - inizio) / 1e9), consegnati, scartati, registrazioni,
+                        smtp.messaggiRicevuti());
+                System.out.println(webhook);
+                System.out.println(registrazioni);
+                return esito;
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext avviaApplicazione(EmbeddedPostgres postgres, TelegramApiStub telegram,
+                                                             SmtpStub smtp, boolean virtualThreads) {
+        return SpringApplication.run(MyspendrApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.devtools.restart.enabled=false",
+                "--spring.mail.host=127.0.0.1",
+                "--spring.mail.port=" + smtp.porta(),
+                "--spring.mail.properties.mail.from=benchmark@myspendr.it",
+                "--spring.mail.properties.mail.smtp.localhost=localhost",
+                "--jwt.secret=load-test-secret-load-test-secret-load-test-secret-load-test-secret",
+                "--telegram.bot.token=load-test",
+                "--telegram.api.base-url=" + telegram.baseUrl(),
+                // L'hashing non deve essere il collo di bottiglia: qui si misura l'attesa su SMTP
+                "--myspendr.hashing.bcrypt-strength=4",
+                "--myspendr.hashing.queue-capacity=10000",
+                "--logging.level.root=WARN",
+                "--logging.level.com.myspendr=WARN");
+    }
+
+    // 🌱 Un utente collegato per ogni chat, così gli update si distribuiscono su tutte le partizioni
+    private static void creaUtentiTelegram(JdbcTemplate jdbc) {
+        Date oggi = Date.valueOf(LocalDate.now());
+        for (int i = 0; i < CHAT; i++) {
+            UUID userId = UUID.randomUUID();
+            jdbc.update("INSERT INTO users (id, nome, cognome, username, email, password, data_registrazione, " +
+                            "tentativi_falliti, email_confirmed) VALUES (?, 'Chat', ?, ?, ?, 'x', ?, 0, true)",
+                    userId, "Test" + i, "chat" + i, "chat" + i + "@myspendr.it", oggi);
+            jdbc.update("INSERT INTO capitale (conto_bancario, liquidita, altri_fondi, totale, data_aggiornamento, user_id) " +
+                    "VALUES (1000, 100, 0, 1100, ?, ?)", oggi, userId);
+            jdbc.update("INSERT INTO telegram_user (telegram_id, username, user_id) VALUES (?, ?, ?)",
+                    CHAT_ID_BASE + i, "chat" + i, userId);
+        }
+    }
+
+    private static void attendiCoda(TelegramApiStub telegram, long attesi) throws InterruptedException {
+        long inizio = System.nanoTime();
+        while (telegram.messaggiRicevuti() < attesi && System.nanoTime() - inizio < ATTESA_MASSIMA_CODA.toNanos()) {
+            Thread.sleep(20);
+        }
+    }
+
+    private int webhook(long chatId) throws IOException, InterruptedException {
+        String update = """
+                {"update_id": %d,
+                 "message": {"message_id": 1, "date": 0, "text": "/riepilogo",
+                             "chat": {"id": %d, "type": "private"},
+                             "from": {"id": %d, "is_bot": false, "first_name": "Carico"}}}
+                """.formatted(progressivo.getAndIncrement(), chatId, chatId);
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/telegram"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(update))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int registra(String nome) throws IOException, InterruptedException {
+        String body = """
+                {"nome": "Bench", "cognome": "Test", "username": "%s", "email": "%s@myspendr.it", "password": "Bench123!"}
+                """.formatted(nome, nome);
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static void riga(String metrica, Esito piattaforma, Esito virtuali, Function<Esito, String> valore) {
+        System.out.printf("%-40s %14s %14s%n", metrica, valore.apply(piattaforma), valore.apply(virtuali));
+    }
+
+    private static String formato(double valore) {
+        return String.format(Locale.ROOT, "%.1f", valore);
+    }
+}
@@ -3,9 +3,26 @@ package com.myspendr.myspendr;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Map;
+
 @SpringBootApplication(scanBasePackages = "com.myspendr.myspendr")
 public class MyspendrApplication {
     public static void main(String[] args) {
-        SpringApplication.run(MyspendrApplication.class, args);
+        SpringApplication app = new SpringApplication(MyspendrApplication.class);
+        // Valori di default, sovrascrivibili da application.properties o variabili d'ambiente
+        app.setDefaultProperties(Map.of(
+                // prometheus risponde solo sulla porta management.server.port (vedi SecurityConfig)
+                "management.endpoints.web.exposure.include", "health,prometheus",
+                // Senza, ogni probe di /actuator/health apre una connessione SMTP e un server di posta irraggiungibile
+                // segnerebbe DOWN istanze sane
+                "management.health.mail.enabled", "false",
+                // Con spring.threads.virtual.enabled=true le richieste non sono più limitate dai thread di Tomcat:
+                // il pool di connessioni diventa il vero limite verso il database, e chi aspetta una connessione fallisce presto
+                "spring.datasource.hikari.maximum-pool-size", "20",
+                "spring.datasource.hikari.connection-timeout", "5000",
+                // Gli update arrivano dal webhook: la registrazione automatica dei bot dello starter non serve all'avvio
+                "telegrambots.enabled", "false"
+        ));
+        app.run(args);
     }
 }
@@ -0,0 +1,39 @@
+package com.myspendr.myspendr.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String UTENTI = "utenti";
+    public static final String CAPITALI = "capitali";
+
+    // Le statistiche (recordStats) vengono pubblicate da Actuator come cache.gets{result=hit|miss}
+    @Bean
+    public CacheManager cacheManager(@Value("${myspendr.cache.utenti.ttl-minutes:10}") long utentiTtl,
+                                     @Value("${myspendr.cache.utenti.max-size:10000}") long utentiMaxSize,
+                                     @Value("${myspendr.cache.capitali.ttl-minutes:5}") long capitaliTtl,
+                                     @Value("${myspendr.cache.capitali.max-size:10000}") long capitaliMaxSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(UTENTI, Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(utentiTtl))
+                .maximumSize(utentiMaxSize)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(CAPITALI, Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(capitaliTtl))
+                .maximumSize(capitaliMaxSize)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,26 @@
+package com.myspendr.myspendr.config;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+@Configuration
+public class LazyInitConfig {
+
+    // Bean non necessari per servire le richieste: vengono creati al primo utilizzo invece che all'avvio.
+    // Il JavaMailSender arriva dall'autoconfigurazione, quindi lo marco lazy qui; EmailService è già @Lazy.
+    // Funziona solo con management.health.mail.enabled=false (default dell'app): l'health indicator lo creerebbe all'avvio.
+    private static final Class<?>[] TIPI_LAZY = {JavaMailSender.class};
+
+    @Bean
+    public static BeanFactoryPostProcessor beanNonCriticiLazy() {
+        return beanFactory -> {
+            for (Class<?> tipo : TIPI_LAZY) {
+                for (String nome : beanFactory.getBeanNamesForType(tipo, true, false)) {
+                    beanFactory.getBeanDefinition(nome).setLazyInit(true);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.myspendr.myspendr.config;
+
+import com.myspendr.myspendr.metrics.ContatoreQuery;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Metriche applicative, esposte su /actuator/prometheus (libero solo sulla porta management.server.port)
+@Configuration
+public class MetricsConfig {
+
+    // Abilita @Timed sui service
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    // Istogrammi per latenze HTTP e timer applicativi: p50/p99 calcolabili lato Prometheus.
+    // Solo i timer: i DistributionSummary (righe, query per richiesta) dichiarano i propri bucket SLO,
+    // altrimenti ogni serie repository×metodo o uri avrebbe ~276 bucket
+    @Bean
+    public MeterFilter istogrammiLatenze() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() == Meter.Type.TIMER
+                        && (id.getName().startsWith("http.server.requests") || id.getName().startsWith("myspendr."))) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    // Ogni statement SQL generato da Hibernate passa dal contatore delle query per richiesta
+    @Bean
+    public HibernatePropertiesCustomizer contatoreQueryHibernate(ContatoreQuery contatoreQuery) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, contatoreQuery);
+    }
+}
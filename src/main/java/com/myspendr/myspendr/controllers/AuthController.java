@@ -1,8 +1,12 @@
 package com.myspendr.myspendr.controllers;
 
 import com.myspendr.myspendr.dto.*;
+import com.myspendr.myspendr.exceptions.InvalidCredentialsException;
+import com.myspendr.myspendr.exceptions.PasswordHashingBusyException;
 import com.myspendr.myspendr.services.AuthService;
+import com.myspendr.myspendr.services.RefreshTokenService;
 import com.myspendr.myspendr.services.VerificationTokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,10 +18,12 @@ public class AuthController {
 
     private final VerificationTokenService verificationTokenService;
     private final AuthService authService;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthController(AuthService authService, VerificationTokenService verificationTokenService) {
+    public AuthController(AuthService authService, VerificationTokenService verificationTokenService, RefreshTokenService refreshTokenService) {
         this.authService = authService;
         this.verificationTokenService = verificationTokenService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/register")
@@ -26,6 +32,9 @@ public class AuthController {
             authService.register(request);
             log.info("✅ Registrazione avvenuta per {}", request.getEmail());
             return ResponseEntity.ok("Registrazione completata");
+        } catch (PasswordHashingBusyException e) {
+            // 429/503 dal GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             log.error("❌ Errore durante la registrazione per {}", request.getEmail(), e);
             return ResponseEntity.internalServerError().body("Errore nella registrazione");
@@ -33,16 +42,36 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         try {
-            LoginResponse response = authService.login(request);
+            // Dietro un proxy l'IP reale arriva da X-Forwarded-For se server.forward-headers-strategy è attivo
+            LoginResponse response = authService.login(request, httpRequest.getRemoteAddr());
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Login fallito per {}", request.getEmail(), e);
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    // Nuovo access token senza password: il refresh token viene ruotato a ogni chiamata
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        try {
+            return ResponseEntity.ok(refreshTokenService.rinnova(request.getRefreshToken()));
+        } catch (InvalidCredentialsException e) {
+            return ResponseEntity.status(401).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                         @RequestBody(required = false) RefreshTokenRequest request) {
+        authService.logout(authHeader, request != null ? request.getRefreshToken() : null);
+        return ResponseEntity.ok("Logout effettuato");
+    }
+
     @GetMapping("/verify-email")
     public ResponseEntity<String> verifyEmail(@RequestParam("token") String token) {
         try {
@@ -66,6 +95,8 @@ public class AuthController {
             authService.forgotPassword(request.getEmail());
             log.info("🔐 Reset password avviato per {}", request.getEmail());
             return ResponseEntity.ok("✅ Nuova password inviata via email");
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Errore durante reset password per {}", request.getEmail(), e);
             return ResponseEntity.badRequest().body("Errore durante l'invio della nuova password");
@@ -81,6 +112,8 @@ public class AuthController {
             authService.resetPassword(authHeader, request);
             log.info("🔁 Password aggiornata per utente");
             return ResponseEntity.ok("Password aggiornata con successo");
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Errore durante reset password", e);
             return ResponseEntity.badRequest().body(e.getMessage());
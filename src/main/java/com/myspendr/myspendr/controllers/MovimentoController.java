@@ -1,14 +1,24 @@
 package com.myspendr.myspendr.controllers;
 
+import com.myspendr.myspendr.dto.ImportMovimentiResponse;
 import com.myspendr.myspendr.dto.MovimentoRequest;
 import com.myspendr.myspendr.dto.MovimentoResponse;
+import com.myspendr.myspendr.dto.PaginaMovimentiResponse;
+import com.myspendr.myspendr.dto.RiepilogoMeseResponse;
+import com.myspendr.myspendr.dto.TotaliMovimentiResponse;
+import com.myspendr.myspendr.services.ExportMovimentiService;
 import com.myspendr.myspendr.services.MovimentoService;
+import com.myspendr.myspendr.services.RiepilogoMensileService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -19,8 +29,15 @@ public class MovimentoController {
 
     private final MovimentoService movimentoService;
 
-    public MovimentoController(MovimentoService movimentoService) {
+    private final ExportMovimentiService exportMovimentiService;
+
+    private final RiepilogoMensileService riepilogoMensileService;
+
+    public MovimentoController(MovimentoService movimentoService, ExportMovimentiService exportMovimentiService,
+                               RiepilogoMensileService riepilogoMensileService) {
         this.movimentoService = movimentoService;
+        this.exportMovimentiService = exportMovimentiService;
+        this.riepilogoMensileService = riepilogoMensileService;
     }
 
     // ➕ Crea un nuovo movimento
@@ -40,6 +57,23 @@ public class MovimentoController {
         }
     }
 
+    // 📥 Import massivo di movimenti (es. estratto conto bancario)
+    @PostMapping("/bulk")
+    public ResponseEntity<?> importaMovimenti(@RequestBody List<MovimentoRequest> requests,
+                                              @RequestHeader("Authorization") String token) {
+        try {
+            ImportMovimentiResponse response = movimentoService.importaMovimenti(token, requests);
+            log.info("✅ Import completato: {} movimenti", response.getImportati());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException ex) {
+            log.warn("⚠️ Import non valido: {}", ex.getMessage());
+            return ResponseEntity.badRequest().body("Dati non validi: " + ex.getMessage());
+        } catch (Exception e) {
+            log.error("❌ Errore interno nell'import dei movimenti", e);
+            return ResponseEntity.internalServerError().body("Errore interno del server");
+        }
+    }
+
     // 📥 Ritorna tutti i movimenti dell'utente
     @GetMapping
     public ResponseEntity<?> getMovimenti(@RequestHeader("Authorization") String token) {
@@ -69,6 +103,63 @@ public class MovimentoController {
         }
     }
 
+    // 📄 Movimenti paginati (cursore su data e id), con filtro date opzionale
+    @GetMapping("/pagina")
+    public ResponseEntity<?> getPaginaMovimenti(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(value = "start", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(value = "cursorData", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cursorData,
+            @RequestParam(value = "cursorId", required = false) Long cursorId,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        // Cursore a metà: ripartire dalla prima pagina duplicherebbe i risultati lato client
+        if ((cursorData == null) != (cursorId == null)) {
+            return ResponseEntity.badRequest().body("cursorData e cursorId vanno passati insieme");
+        }
+        try {
+            PaginaMovimentiResponse pagina = movimentoService.getPaginaMovimenti(token, start, end, cursorData, cursorId, size);
+            log.info("📄 Recuperata pagina con {} movimenti", pagina.getMovimenti().size());
+            return ResponseEntity.ok(pagina);
+        } catch (Exception e) {
+            log.error("❌ Errore nel recupero della pagina di movimenti", e);
+            return ResponseEntity.internalServerError().body("Errore nel recupero dei movimenti");
+        }
+    }
+
+    // 📤 Export completo dei movimenti in streaming (CSV o NDJSON)
+    @GetMapping("/export")
+    public ResponseEntity<?> esportaMovimenti(@RequestHeader("Authorization") String token,
+                                              @RequestParam(value = "formato", defaultValue = "CSV") ExportMovimentiService.Formato formato) {
+        try {
+            Long capitaleId = exportMovimentiService.getCapitaleIdFromToken(token);
+            StreamingResponseBody body = out -> exportMovimentiService.esporta(capitaleId, formato, out);
+
+            boolean csv = formato == ExportMovimentiService.Formato.CSV;
+            return ResponseEntity.ok()
+                    .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"movimenti." + (csv ? "csv" : "ndjson") + "\"")
+                    .body(body);
+        } catch (Exception e) {
+            log.error("❌ Errore nell'export dei movimenti", e);
+            return ResponseEntity.internalServerError().body("Errore nell'export dei movimenti");
+        }
+    }
+
+    // 📈 Entrate, uscite e netto degli ultimi N mesi, con il dettaglio per categoria (per i grafici)
+    @GetMapping("/riepilogo-mensile")
+    public ResponseEntity<?> getRiepilogoMensile(@RequestHeader("Authorization") String token,
+                                                 @RequestParam(value = "mesi", defaultValue = "12") int mesi) {
+        try {
+            List<RiepilogoMeseResponse> riepilogo = riepilogoMensileService.getUltimiMesi(token, mesi);
+            log.info("📈 Riepilogo mensile con {} mesi", riepilogo.size());
+            return ResponseEntity.ok(riepilogo);
+        } catch (Exception e) {
+            log.error("❌ Errore nel calcolo del riepilogo mensile", e);
+            return ResponseEntity.internalServerError().body("Errore nel riepilogo mensile");
+        }
+    }
+
     // 📊 Totale ENTRATE
     @GetMapping("/totale/entrate")
     public ResponseEntity<?> getTotaleEntrate(@RequestHeader("Authorization") String token) {
@@ -134,4 +225,17 @@ public class MovimentoController {
         }
     }
 
+    // 📊 Tutti i totali (entrate, uscite, ultimo mese) in un'unica chiamata
+    @GetMapping("/totali")
+    public ResponseEntity<?> getTotali(@RequestHeader("Authorization") String token) {
+        try {
+            TotaliMovimentiResponse totali = movimentoService.getTotali(token);
+            log.info("📊 Totali movimenti calcolati");
+            return ResponseEntity.ok(totali);
+        } catch (Exception e) {
+            log.error("❌ Errore nel calcolo dei totali", e);
+            return ResponseEntity.internalServerError().body("Errore nel calcolo dei totali");
+        }
+    }
+
 }
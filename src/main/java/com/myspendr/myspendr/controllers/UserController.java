@@ -2,7 +2,8 @@ package com.myspendr.myspendr.controllers;
 
 import com.myspendr.myspendr.model.User;
 import com.myspendr.myspendr.repositories.UserRepository;
-import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import com.myspendr.myspendr.security.UtenteAutenticatoResolver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,22 +17,21 @@ import org.springframework.web.bind.annotation.RestController;
 public class UserController {
 
     private final UserRepository userRepository;
-    private final JwtUtils jwtUtils;
+    private final UtenteAutenticatoResolver utenteResolver;
 
-    public UserController(UserRepository userRepository, JwtUtils jwtUtils) {
+    public UserController(UserRepository userRepository, UtenteAutenticatoResolver utenteResolver) {
         this.userRepository = userRepository;
-        this.jwtUtils = jwtUtils;
+        this.utenteResolver = utenteResolver;
     }
 
     @GetMapping("/me")
     public ResponseEntity<?> getMe(@RequestHeader("Authorization") String authHeader) {
         try {
-            String token = authHeader.replace("Bearer ", "").trim();
-            String email = jwtUtils.getUsernameFromJwtToken(token);
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
 
-            User user = userRepository.findByEmail(email)
+            User user = userRepository.findById(utente.userId())
                     .orElseThrow(() -> {
-                        log.warn("❌ Utente non trovato per email: {}", email);
+                        log.warn("❌ Utente non trovato per email: {}", utente.email());
                         return new RuntimeException("Utente non trovato");
                     });
 
@@ -0,0 +1,11 @@
+package com.myspendr.myspendr.dto;
+
+import com.myspendr.myspendr.model.CategoriaMovimento;
+
+import java.math.BigDecimal;
+
+public interface BudgetConSpesa {
+    CategoriaMovimento getCategoria();
+    BigDecimal getLimite();
+    BigDecimal getSpeso();
+}
@@ -0,0 +1,14 @@
+package com.myspendr.myspendr.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class ImportMovimentiResponse {
+    private int importati;
+    private BigDecimal totaleEntrate;
+    private BigDecimal totaleUscite;
+}
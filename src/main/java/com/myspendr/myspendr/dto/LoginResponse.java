@@ -7,6 +7,7 @@ import lombok.Data;
 @AllArgsConstructor
 public class LoginResponse {
     private String token;
+    private String refreshToken;
     private String username;
     private String telegramToken;
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.myspendr.myspendr.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaMovimentiResponse {
+    private List<MovimentoResponse> movimenti;
+    private boolean hasNext;
+    // Cursore da passare alla richiesta successiva (null se non ci sono altre pagine)
+    private LocalDate nextCursorData;
+    private Long nextCursorId;
+}
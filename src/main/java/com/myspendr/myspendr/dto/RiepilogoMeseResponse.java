@@ -0,0 +1,21 @@
+package com.myspendr.myspendr.dto;
+
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiepilogoMeseResponse {
+    private String periodo;
+    private BigDecimal entrate;
+    private BigDecimal uscite;
+    private BigDecimal netto;
+    private Map<CategoriaMovimento, BigDecimal> entratePerCategoria;
+    private Map<CategoriaMovimento, BigDecimal> uscitePerCategoria;
+}
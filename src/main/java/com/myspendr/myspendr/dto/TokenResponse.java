@@ -0,0 +1,11 @@
+package com.myspendr.myspendr.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TokenResponse {
+    private String token;
+    private String refreshToken;
+}
@@ -0,0 +1,21 @@
+package com.myspendr.myspendr.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TotaliMovimentiResponse {
+    private BigDecimal totaleEntrate;
+    private BigDecimal totaleUscite;
+    private BigDecimal totaleEntrateUltimoMese;
+    private BigDecimal totaleUsciteUltimoMese;
+
+    public static TotaliMovimentiResponse vuoto() {
+        return new TotaliMovimentiResponse(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+}
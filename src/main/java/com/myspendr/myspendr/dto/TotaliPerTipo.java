@@ -0,0 +1,11 @@
+package com.myspendr.myspendr.dto;
+
+import com.myspendr.myspendr.model.TipoMovimento;
+
+import java.math.BigDecimal;
+
+public interface TotaliPerTipo {
+    TipoMovimento getTipo();
+    BigDecimal getTotale();
+    BigDecimal getTotalePeriodo();
+}
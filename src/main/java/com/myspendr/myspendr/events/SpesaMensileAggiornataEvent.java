@@ -0,0 +1,9 @@
+package com.myspendr.myspendr.events;
+
+import com.myspendr.myspendr.model.CategoriaMovimento;
+
+import java.util.UUID;
+
+// Pubblicato quando cambia il contatore di spesa di un mese: i budget vengono ricontrollati dopo il commit
+public record SpesaMensileAggiornataEvent(UUID userId, CategoriaMovimento categoria, int anno, int mese) {
+}
@@ -37,6 +37,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante l'invio dell'email di benvenuto. Riprova più tardi.");
     }
 
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<String> handleHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS) // 429
+                .header("Retry-After", "1")
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(PasswordHashingTimeoutException.class)
+    public ResponseEntity<String> handleHashingTimeout(PasswordHashingTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE) // 503
+                .header("Retry-After", "5")
+                .body(e.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGeneral(Exception e) {
         return new ResponseEntity<>("Errore generico: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR); // 500
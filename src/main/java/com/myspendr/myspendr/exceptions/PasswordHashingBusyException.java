@@ -0,0 +1,8 @@
+package com.myspendr.myspendr.exceptions;
+
+// Coda dell'hashing piena: il client deve riprovare più tardi (429)
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
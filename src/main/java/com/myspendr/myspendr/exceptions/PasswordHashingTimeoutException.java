@@ -0,0 +1,8 @@
+package com.myspendr.myspendr.exceptions;
+
+// Hashing accodato ma non completato in tempo (503)
+public class PasswordHashingTimeoutException extends PasswordHashingBusyException {
+    public PasswordHashingTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package com.myspendr.myspendr.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+// Conta gli statement SQL eseguiti da Hibernate nel thread corrente (azzerato a ogni richiesta HTTP)
+@Component
+public class ContatoreQuery implements StatementInspector {
+
+    private static final ThreadLocal<int[]> QUERY = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        QUERY.get()[0]++;
+        return sql;
+    }
+
+    public void azzera() {
+        QUERY.get()[0] = 0;
+    }
+
+    public int conteggio() {
+        return QUERY.get()[0];
+    }
+}
@@ -0,0 +1,42 @@
+package com.myspendr.myspendr.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// 📊 Registra quante query Hibernate ha eseguito ogni richiesta, per endpoint
+@Component
+@RequiredArgsConstructor
+public class QueryPerRichiestaFilter extends OncePerRequestFilter {
+
+    private final ContatoreQuery contatoreQuery;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        contatoreQuery.azzera();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("myspendr.db.queries.per.request")
+                    .description("Statement SQL eseguiti da Hibernate per richiesta HTTP")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .serviceLevelObjectives(1, 2, 3, 5, 10, 20, 50, 100)
+                    .maximumExpectedValue(1000.0)
+                    .register(meterRegistry)
+                    .record(contatoreQuery.conteggio());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.myspendr.myspendr.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.Entity;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// 📊 Righe restituite da ogni metodo dei repository JPA.
+// La latenza è già misurata da Spring Boot (spring.data.repository.invocations).
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object contaRighe(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object risultato = joinPoint.proceed();
+
+        int righe = righe(risultato);
+        if (righe >= 0) {
+            DistributionSummary.builder("myspendr.repository.rows")
+                    .description("Righe restituite per invocazione di repository")
+                    .tag("repository", nomeRepository(joinPoint.getThis()))
+                    .tag("method", joinPoint.getSignature().getName())
+                    .serviceLevelObjectives(1, 10, 100, 1_000, 10_000, 100_000)
+                    .maximumExpectedValue(1_000_000.0)
+                    .register(meterRegistry)
+                    .record(righe);
+        }
+        return risultato;
+    }
+
+    private static String nomeRepository(Object proxy) {
+        Class<?>[] interfacce = AopProxyUtils.proxiedUserInterfaces(proxy);
+        return interfacce.length > 0 ? interfacce[0].getSimpleName() : proxy.getClass().getSimpleName();
+    }
+
+    // -1 per i risultati che non sono righe (update, stream, void, riferimenti lazy)
+    private static int righe(Object risultato) {
+        if (risultato instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (risultato instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (risultato instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (risultato != null && risultato.getClass().isAnnotationPresent(Entity.class)) {
+            return 1;
+        }
+        return -1;
+    }
+}
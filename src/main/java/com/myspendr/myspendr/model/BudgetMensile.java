@@ -35,4 +35,7 @@ public class BudgetMensile {
 
     @Column(nullable = false)
     private Integer anno;
+
+    // Ultima soglia di avviso (80 o 100) già notificata all'utente
+    private Integer sogliaNotificata;
 }
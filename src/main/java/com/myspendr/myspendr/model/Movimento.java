@@ -7,7 +7,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "movimenti")
+@Table(name = "movimenti", indexes = {
+        @Index(name = "idx_movimenti_capitale_data_id", columnList = "capitale_id, data, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,45 @@
+package com.myspendr.myspendr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Refresh token opaco: sul database c'è solo l'HMAC del valore consegnato al client.
+// Ogni rinnovo crea un nuovo token nella stessa famiglia e marca il precedente come usato.
+@Entity
+@Table(name = "refresh_token", indexes = {
+        @Index(name = "uk_refresh_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_refresh_token_famiglia", columnList = "famiglia"),
+        @Index(name = "idx_refresh_token_user", columnList = "user_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    // Tutti i token nati dallo stesso login: se uno già usato viene ripresentato si revoca l'intera famiglia
+    @Column(nullable = false)
+    private UUID famiglia;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private LocalDateTime scadenza;
+
+    private boolean usato;
+
+    private boolean revocato;
+}
@@ -0,0 +1,47 @@
+package com.myspendr.myspendr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Totale e numero dei movimenti per utente, mese, tipo e categoria: alimenta i grafici della dashboard
+@Entity
+@Table(name = "riepilogo_mensile", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_riepilogo_mensile", columnNames = {"user_id", "anno", "mese", "tipo", "categoria"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RiepilogoMensile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private Integer anno;
+
+    @Column(nullable = false)
+    private Integer mese;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoMovimento tipo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CategoriaMovimento categoria;
+
+    @Column(nullable = false)
+    private BigDecimal totale;
+
+    @Column(nullable = false)
+    private Integer numeroMovimenti;
+}
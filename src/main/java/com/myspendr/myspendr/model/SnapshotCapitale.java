@@ -0,0 +1,37 @@
+package com.myspendr.myspendr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Saldo del capitale di un utente alla fine di ogni mese (il mese corrente viene aggiornato ogni notte)
+@Entity
+@Table(name = "capitale_snapshot", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_capitale_snapshot_user_mese", columnNames = {"user_id", "mese"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SnapshotCapitale {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    // Primo giorno del mese a cui si riferisce il saldo
+    @Column(nullable = false)
+    private LocalDate mese;
+
+    private BigDecimal contoBancario;
+    private BigDecimal liquidita;
+    private BigDecimal altriFondi;
+    private BigDecimal totale;
+}
@@ -0,0 +1,40 @@
+package com.myspendr.myspendr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Totale delle USCITE per utente, categoria e mese, aggiornato insieme ai movimenti
+@Entity
+@Table(name = "spesa_mensile", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_spesa_mensile_user_categoria_mese", columnNames = {"user_id", "categoria", "anno", "mese"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpesaMensile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CategoriaMovimento categoria;
+
+    @Column(nullable = false)
+    private Integer anno;
+
+    @Column(nullable = false)
+    private Integer mese;
+
+    @Column(nullable = false)
+    private BigDecimal totale;
+}
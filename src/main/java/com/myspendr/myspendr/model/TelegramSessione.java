@@ -0,0 +1,37 @@
+package com.myspendr.myspendr.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Passo del wizard /spesa di una chat, condiviso tra i nodi quando telegram.sessioni.store=jdbc
+@Entity
+@Table(name = "telegram_sessioni", indexes = {
+        @Index(name = "idx_telegram_sessioni_aggiornata_il", columnList = "aggiornata_il")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TelegramSessione {
+
+    @Id
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private TipoMovimento tipo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 64)
+    private CategoriaMovimento categoria;
+
+    @Column(length = 64)
+    private String fonte;
+
+    @Column(name = "aggiornata_il", nullable = false)
+    private LocalDateTime aggiornataIl;
+}
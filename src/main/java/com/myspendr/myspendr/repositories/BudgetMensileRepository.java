@@ -1,9 +1,14 @@
 package com.myspendr.myspendr.repositories;
 
+import com.myspendr.myspendr.dto.BudgetConSpesa;
 import com.myspendr.myspendr.model.BudgetMensile;
 import com.myspendr.myspendr.model.CategoriaMovimento;
 import com.myspendr.myspendr.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,5 +16,29 @@ import java.util.UUID;
 
 public interface BudgetMensileRepository extends JpaRepository<BudgetMensile, UUID> {
     Optional<BudgetMensile> findByUserAndCategoriaAndMeseAndAnno(User user, CategoriaMovimento categoria, int mese, int anno);
+    Optional<BudgetMensile> findByUser_IdAndCategoriaAndMeseAndAnno(UUID userId, CategoriaMovimento categoria, int mese, int anno);
     List<BudgetMensile> findByUserAndMeseAndAnno(User user, int mese, int anno);
+
+    // 📊 Tutti i budget del mese con la spesa per categoria, in un solo round trip
+    @Query("SELECT b.categoria AS categoria, b.limite AS limite, COALESCE(s.totale, 0) AS speso " +
+            "FROM BudgetMensile b LEFT JOIN SpesaMensile s " +
+            "ON s.userId = b.user.id AND s.categoria = b.categoria AND s.anno = b.anno AND s.mese = b.mese " +
+            "WHERE b.user.id = :userId AND b.mese = :mese AND b.anno = :anno " +
+            "ORDER BY b.categoria")
+    List<BudgetConSpesa> findConSpesa(@Param("userId") UUID userId,
+                                      @Param("mese") int mese,
+                                      @Param("anno") int anno);
+
+    // 🔔 Segna la soglia come notificata solo se non lo era già: ritorna 1 a chi deve inviare l'avviso
+    @Transactional
+    @Modifying
+    @Query("UPDATE BudgetMensile b SET b.sogliaNotificata = :soglia " +
+            "WHERE b.id = :id AND (b.sogliaNotificata IS NULL OR b.sogliaNotificata < :soglia)")
+    int alzaSogliaNotificata(@Param("id") UUID id, @Param("soglia") int soglia);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BudgetMensile b SET b.sogliaNotificata = :soglia " +
+            "WHERE b.id = :id AND b.sogliaNotificata > :soglia")
+    int abbassaSogliaNotificata(@Param("id") UUID id, @Param("soglia") int soglia);
 }
@@ -3,9 +3,11 @@ package com.myspendr.myspendr.repositories;
 import com.myspendr.myspendr.dto.ReportCapitaleDTO;
 import com.myspendr.myspendr.model.Capitale;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,5 +16,17 @@ public interface CapitaleRepository extends JpaRepository<Capitale, Long> {
     Optional<Capitale> findByUserId(UUID userId);
     void deleteByUserId(UUID userId);
 
-}
+    // 💰 Aggiornamento atomico dei saldi: la somma avviene nel database, senza read-modify-write
+    @Modifying
+    @Query("UPDATE Capitale c SET " +
+            "c.contoBancario = c.contoBancario + :banca, " +
+            "c.liquidita = c.liquidita + :contanti, " +
+            "c.altriFondi = c.altriFondi + :altri, " +
+            "c.totale = c.contoBancario + c.liquidita + c.altriFondi + :banca + :contanti + :altri " +
+            "WHERE c.id = :id")
+    int applicaVariazione(@Param("id") Long id,
+                          @Param("banca") BigDecimal banca,
+                          @Param("contanti") BigDecimal contanti,
+                          @Param("altri") BigDecimal altri);
 
+}
@@ -1,19 +1,76 @@
 package com.myspendr.myspendr.repositories;
 
+import com.myspendr.myspendr.dto.TotaliPerTipo;
 import com.myspendr.myspendr.model.CategoriaMovimento;
 import com.myspendr.myspendr.model.Movimento;
 import com.myspendr.myspendr.model.TipoMovimento;
 import com.myspendr.myspendr.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MovimentoRepository extends JpaRepository<Movimento, Long> {
     List<Movimento> findByCapitaleId(Long capitaleId);
     void deleteByCapitaleId(Long capitaleId);
 
+    List<Movimento> findByCapitaleIdAndDataBetween(Long capitaleId, LocalDate inizio, LocalDate fine);
+
+    // 📄 Paginazione keyset su (data, id), dal più recente
+    @Query("SELECT m FROM Movimento m " +
+            "WHERE m.capitale.id = :capitaleId AND m.data BETWEEN :inizio AND :fine " +
+            "ORDER BY m.data DESC, m.id DESC")
+    List<Movimento> findPrimaPagina(@Param("capitaleId") Long capitaleId,
+                                    @Param("inizio") LocalDate inizio,
+                                    @Param("fine") LocalDate fine,
+                                    Pageable pageable);
+
+    @Query("SELECT m FROM Movimento m " +
+            "WHERE m.capitale.id = :capitaleId AND m.data BETWEEN :inizio AND :fine " +
+            "AND (m.data < :cursorData OR (m.data = :cursorData AND m.id < :cursorId)) " +
+            "ORDER BY m.data DESC, m.id DESC")
+    List<Movimento> findPaginaDopo(@Param("capitaleId") Long capitaleId,
+                                   @Param("inizio") LocalDate inizio,
+                                   @Param("fine") LocalDate fine,
+                                   @Param("cursorData") LocalDate cursorData,
+                                   @Param("cursorId") Long cursorId,
+                                   Pageable pageable);
+
     List<Movimento> findByCapitale_UserAndCategoriaAndTipoAndDataBetween(User user,
                                                                          CategoriaMovimento categoria, TipoMovimento tipo, LocalDate inizio, LocalDate fine);
 
+    // 📤 Export: scorre i movimenti senza caricarli tutti in memoria (richiede una transazione aperta)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT m FROM Movimento m WHERE m.capitale.id = :capitaleId ORDER BY m.data, m.id")
+    Stream<Movimento> streamByCapitaleId(@Param("capitaleId") Long capitaleId);
+
+    // 📊 Somme calcolate dal database, senza caricare i movimenti
+    @Query("SELECT COALESCE(SUM(m.importo), 0) FROM Movimento m " +
+            "WHERE m.capitale.id = :capitaleId AND m.tipo = :tipo")
+    BigDecimal sommaImporti(@Param("capitaleId") Long capitaleId,
+                            @Param("tipo") TipoMovimento tipo);
+
+    @Query("SELECT COALESCE(SUM(m.importo), 0) FROM Movimento m " +
+            "WHERE m.capitale.id = :capitaleId AND m.tipo = :tipo AND m.data BETWEEN :inizio AND :fine")
+    BigDecimal sommaImportiTraDate(@Param("capitaleId") Long capitaleId,
+                                   @Param("tipo") TipoMovimento tipo,
+                                   @Param("inizio") LocalDate inizio,
+                                   @Param("fine") LocalDate fine);
+
+    @Query("SELECT m.tipo AS tipo, " +
+            "COALESCE(SUM(m.importo), 0) AS totale, " +
+            "COALESCE(SUM(CASE WHEN m.data BETWEEN :inizio AND :fine THEN m.importo ELSE 0 END), 0) AS totalePeriodo " +
+            "FROM Movimento m WHERE m.capitale.id = :capitaleId GROUP BY m.tipo")
+    List<TotaliPerTipo> totaliPerTipo(@Param("capitaleId") Long capitaleId,
+                                      @Param("inizio") LocalDate inizio,
+                                      @Param("fine") LocalDate fine);
+
 }
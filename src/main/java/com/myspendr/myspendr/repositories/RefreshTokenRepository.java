@@ -0,0 +1,35 @@
+package com.myspendr.myspendr.repositories;
+
+import com.myspendr.myspendr.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    // 🔑 Lookup sull'indice univoco dell'hash, con l'utente già caricato per firmare il nuovo access token
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.user WHERE r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // Marca il token come usato solo se nessun'altra richiesta l'ha già fatto: 0 = riuso
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.usato = true WHERE r.id = :id AND r.usato = false AND r.revocato = false")
+    int marcaUsato(@Param("id") UUID id);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revocato = true WHERE r.famiglia = :famiglia AND r.revocato = false")
+    int revocaFamiglia(@Param("famiglia") UUID famiglia);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revocato = true WHERE r.user.id = :userId AND r.revocato = false")
+    int revocaPerUtente(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.scadenza < :limite")
+    int eliminaScaduti(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,71 @@
+package com.myspendr.myspendr.repositories;
+
+import com.myspendr.myspendr.model.RiepilogoMensile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public interface RiepilogoMensileRepository extends JpaRepository<RiepilogoMensile, Long> {
+
+    // 📈 Righe di un utente da (annoDa, meseDa) in poi, già in ordine cronologico
+    @Query("SELECT r FROM RiepilogoMensile r " +
+            "WHERE r.userId = :userId AND (r.anno > :annoDa OR (r.anno = :annoDa AND r.mese >= :meseDa)) " +
+            "ORDER BY r.anno, r.mese")
+    List<RiepilogoMensile> findDalMese(@Param("userId") UUID userId,
+                                       @Param("annoDa") int annoDa,
+                                       @Param("meseDa") int meseDa);
+
+    // ➕ Upsert atomico del totale (e del numero di movimenti) di un mese
+    @Modifying
+    @Query(value = "INSERT INTO riepilogo_mensile (user_id, anno, mese, tipo, categoria, totale, numero_movimenti) " +
+            "VALUES (:userId, :anno, :mese, :tipo, :categoria, :delta, :numero) " +
+            "ON CONFLICT (user_id, anno, mese, tipo, categoria) DO UPDATE SET " +
+            "totale = riepilogo_mensile.totale + EXCLUDED.totale, " +
+            "numero_movimenti = riepilogo_mensile.numero_movimenti + EXCLUDED.numero_movimenti",
+            nativeQuery = true)
+    int incrementa(@Param("userId") UUID userId,
+                   @Param("anno") int anno,
+                   @Param("mese") int mese,
+                   @Param("tipo") String tipo,
+                   @Param("categoria") String categoria,
+                   @Param("delta") BigDecimal delta,
+                   @Param("numero") int numero);
+
+    @Modifying
+    @Query("DELETE FROM RiepilogoMensile r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") UUID userId);
+
+    // 🔁 Riallineamento dai movimenti (quelli senza categoria finiscono in ALTRO): la differenza con il
+    // riepilogo letto nello stesso snapshot viene sommata alla riga corrente, come in SpesaMensileRepository
+    @Modifying
+    @Query(value = "INSERT INTO riepilogo_mensile (user_id, anno, mese, tipo, categoria, totale, numero_movimenti) " +
+            "SELECT COALESCE(calc.user_id, r.user_id), COALESCE(calc.anno, r.anno), COALESCE(calc.mese, r.mese), " +
+            "COALESCE(calc.tipo, r.tipo), COALESCE(calc.categoria, r.categoria), " +
+            "COALESCE(calc.totale, 0) - COALESCE(r.totale, 0), " +
+            "COALESCE(calc.numero, 0) - COALESCE(r.numero_movimenti, 0) " +
+            "FROM (SELECT c.user_id, CAST(EXTRACT(YEAR FROM m.data) AS INTEGER) AS anno, " +
+            "CAST(EXTRACT(MONTH FROM m.data) AS INTEGER) AS mese, m.tipo, COALESCE(m.categoria, 'ALTRO') AS categoria, " +
+            "SUM(m.importo) AS totale, COUNT(*) AS numero " +
+            "FROM movimenti m JOIN capitale c ON c.id = m.capitale_id " +
+            "WHERE m.tipo IS NOT NULL AND m.data IS NOT NULL AND m.importo IS NOT NULL AND c.user_id IS NOT NULL " +
+            "GROUP BY 1, 2, 3, 4, 5) calc " +
+            "FULL JOIN riepilogo_mensile r ON r.user_id = calc.user_id AND r.anno = calc.anno AND r.mese = calc.mese " +
+            "AND r.tipo = calc.tipo AND r.categoria = calc.categoria " +
+            "WHERE COALESCE(calc.totale, 0) <> COALESCE(r.totale, 0) " +
+            "OR COALESCE(calc.numero, 0) <> COALESCE(r.numero_movimenti, 0) " +
+            "ON CONFLICT (user_id, anno, mese, tipo, categoria) DO UPDATE SET " +
+            "totale = riepilogo_mensile.totale + EXCLUDED.totale, " +
+            "numero_movimenti = riepilogo_mensile.numero_movimenti + EXCLUDED.numero_movimenti",
+            nativeQuery = true)
+    int correggiDaMovimenti();
+
+    // 🧹 Righe senza più movimenti
+    @Modifying
+    @Query(value = "DELETE FROM riepilogo_mensile WHERE numero_movimenti = 0 AND totale = 0", nativeQuery = true)
+    int eliminaVuoti();
+}
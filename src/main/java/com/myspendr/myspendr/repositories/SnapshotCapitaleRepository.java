@@ -0,0 +1,32 @@
+package com.myspendr.myspendr.repositories;
+
+import com.myspendr.myspendr.model.SnapshotCapitale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface SnapshotCapitaleRepository extends JpaRepository<SnapshotCapitale, Long> {
+
+    // 📈 Serie storica di un solo utente: usa l'indice univoco (user_id, mese)
+    List<SnapshotCapitale> findByUserIdAndMeseBetweenOrderByMese(UUID userId, LocalDate da, LocalDate a);
+
+    void deleteByUserId(UUID userId);
+
+    // 📸 Fotografa in un solo statement il saldo attuale di tutti i capitali per il mese indicato
+    @Modifying
+    @Query(value = "INSERT INTO capitale_snapshot (user_id, mese, conto_bancario, liquidita, altri_fondi, totale) " +
+            "SELECT c.user_id, :mese, c.conto_bancario, c.liquidita, c.altri_fondi, c.totale " +
+            "FROM capitale c WHERE c.user_id IS NOT NULL " +
+            "ON CONFLICT (user_id, mese) DO UPDATE SET " +
+            "conto_bancario = EXCLUDED.conto_bancario, " +
+            "liquidita = EXCLUDED.liquidita, " +
+            "altri_fondi = EXCLUDED.altri_fondi, " +
+            "totale = EXCLUDED.totale",
+            nativeQuery = true)
+    int salvaSnapshot(@Param("mese") LocalDate mese);
+}
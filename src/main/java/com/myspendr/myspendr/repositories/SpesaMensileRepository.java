@@ -0,0 +1,64 @@
+package com.myspendr.myspendr.repositories;
+
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.SpesaMensile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface SpesaMensileRepository extends JpaRepository<SpesaMensile, Long> {
+
+    @Query("SELECT s.totale FROM SpesaMensile s " +
+            "WHERE s.userId = :userId AND s.categoria = :categoria AND s.anno = :anno AND s.mese = :mese")
+    Optional<BigDecimal> findTotale(@Param("userId") UUID userId,
+                                    @Param("categoria") CategoriaMovimento categoria,
+                                    @Param("anno") int anno,
+                                    @Param("mese") int mese);
+
+    // ➕ Upsert atomico: crea il contatore o ci somma il delta (negativo per gli storni)
+    @Modifying
+    @Query(value = "INSERT INTO spesa_mensile (user_id, categoria, anno, mese, totale) " +
+            "VALUES (:userId, :categoria, :anno, :mese, :delta) " +
+            "ON CONFLICT (user_id, categoria, anno, mese) " +
+            "DO UPDATE SET totale = spesa_mensile.totale + EXCLUDED.totale",
+            nativeQuery = true)
+    int incrementa(@Param("userId") UUID userId,
+                   @Param("categoria") String categoria,
+                   @Param("anno") int anno,
+                   @Param("mese") int mese,
+                   @Param("delta") BigDecimal delta);
+
+    @Modifying
+    @Query("DELETE FROM SpesaMensile s WHERE s.userId = :userId")
+    int deleteByUserId(@Param("userId") UUID userId);
+
+    // 🔁 Riallineamento dai movimenti: movimenti e contatori letti nello stesso snapshot, la differenza
+    // viene sommata alla riga corrente. Un movimento registrato nel frattempo resta contato una sola volta.
+    @Modifying
+    @Query(value = "INSERT INTO spesa_mensile (user_id, categoria, anno, mese, totale) " +
+            "SELECT COALESCE(calc.user_id, s.user_id), COALESCE(calc.categoria, s.categoria), " +
+            "COALESCE(calc.anno, s.anno), COALESCE(calc.mese, s.mese), " +
+            "COALESCE(calc.totale, 0) - COALESCE(s.totale, 0) " +
+            "FROM (SELECT c.user_id, m.categoria, CAST(EXTRACT(YEAR FROM m.data) AS INTEGER) AS anno, " +
+            "CAST(EXTRACT(MONTH FROM m.data) AS INTEGER) AS mese, SUM(m.importo) AS totale " +
+            "FROM movimenti m JOIN capitale c ON c.id = m.capitale_id " +
+            "WHERE m.tipo = 'USCITA' AND m.categoria IS NOT NULL AND m.data IS NOT NULL AND c.user_id IS NOT NULL " +
+            "GROUP BY 1, 2, 3, 4) calc " +
+            "FULL JOIN spesa_mensile s ON s.user_id = calc.user_id AND s.categoria = calc.categoria " +
+            "AND s.anno = calc.anno AND s.mese = calc.mese " +
+            "WHERE COALESCE(calc.totale, 0) <> COALESCE(s.totale, 0) " +
+            "ON CONFLICT (user_id, categoria, anno, mese) " +
+            "DO UPDATE SET totale = spesa_mensile.totale + EXCLUDED.totale",
+            nativeQuery = true)
+    int correggiDaMovimenti();
+
+    // 🧹 Contatori rimasti a zero: il totale viene riletto sulla riga corrente, un incremento concorrente la salva
+    @Modifying
+    @Query(value = "DELETE FROM spesa_mensile WHERE totale = 0", nativeQuery = true)
+    int eliminaVuoti();
+}
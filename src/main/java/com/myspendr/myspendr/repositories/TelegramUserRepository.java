@@ -5,8 +5,11 @@ import com.myspendr.myspendr.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
+import java.util.UUID;
 
 public interface TelegramUserRepository extends JpaRepository<TelegramUser, Long> {
 
     Optional<TelegramUser> findByUser(User user);
+
+    Optional<TelegramUser> findByUser_Id(UUID userId);
 }
@@ -1,11 +1,12 @@
 package com.myspendr.myspendr.security;
 
-import com.myspendr.myspendr.model.User;
-import com.myspendr.myspendr.repositories.UserRepository;
+import com.myspendr.myspendr.services.LookupCacheService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,16 +16,23 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserRepository userRepository;
+    private final LookupCacheService lookupCacheService;
+    private final RevocaTokenStore revocaTokenStore;
+    // Con true il principal viene dai claims firmati del token, senza lookup dell'utente
+    private final boolean stateless;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserRepository userRepository) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, LookupCacheService lookupCacheService, RevocaTokenStore revocaTokenStore,
+                                   @Value("${jwt.stateless.enabled:false}") boolean stateless) {
         this.jwtUtils = jwtUtils;
-        this.userRepository = userRepository;
+        this.lookupCacheService = lookupCacheService;
+        this.revocaTokenStore = revocaTokenStore;
+        this.stateless = stateless;
     }
 
     @Override
@@ -37,22 +45,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
 
-            if (jwtUtils.validateToken(token)) {
-                String email = jwtUtils.getUsernameFromJwtToken(token);
+            Optional<Claims> claims = jwtUtils.getClaimsIfValid(token)
+                    .filter(c -> !revocaTokenStore.isRevocato(c));
 
-                User user = userRepository.findByEmail(email)
-                        .orElseThrow(() -> new RuntimeException("Utente non trovato"));
+            if (claims.isPresent()) {
+                UtenteAutenticato utente = null;
+                if (stateless && revocaTokenStore.claimsAggiornati(claims.get())) {
+                    utente = JwtUtils.utenteDaClaims(claims.get()).orElse(null);
+                }
+                // Token senza claims o emesso prima di una modifica all'utente: rileggo (dalla cache)
+                if (utente == null) {
+                    utente = lookupCacheService.findUtenteByEmail(claims.get().getSubject());
+                }
+                if (utente == null) {
+                    // Token valido di un utente eliminato: la richiesta prosegue non autenticata e riceve 401
+                    SecurityContextHolder.clearContext();
+                } else {
+                    List<GrantedAuthority> authorities = List.of();
 
-                List<GrantedAuthority> authorities = List.of();
 
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(utente, null, authorities);
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(email, null, authorities);
-
-
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
 
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         }
 
@@ -1,55 +1,175 @@
 package com.myspendr.myspendr.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
 public class JwtUtils {
 
+    // Claims firmati con l'identità dell'utente: permettono di autenticare senza leggere il database
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_CAPITALE_ID = "cid";
+    // Istante di emissione al millisecondo: iat ha solo la precisione del secondo (vedi RevocaTokenStore)
+    private static final String CLAIM_EMESSO_MS = "iatms";
+
     private final Key jwtSecret;
+    // Access token brevi: la sessione lunga è affidata al refresh token (RefreshTokenService)
     private final long jwtExpirationMs;
+    // Il parser è immutabile e thread-safe: lo costruisco una volta sola
+    private final JwtParser jwtParser;
+    // Token già verificati → claims; ogni voce scade insieme al token
+    private final Cache<String, Claims> tokenVerificati;
 
-    public JwtUtils(@Value("${jwt.secret}") String secretKey, @Value("${jwt.expirationMs}") long jwtExpirationMs) {
+    public JwtUtils(@Value("${jwt.secret}") String secretKey,
+                    @Value("${jwt.access-expiration-ms:900000}") long jwtExpirationMs,
+                    @Value("${jwt.cache.max-size:10000}") long cacheMaxSize) {
         this.jwtSecret = Keys.hmacShaKeyFor(secretKey.getBytes());
         this.jwtExpirationMs = jwtExpirationMs;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(jwtSecret)
+                .build();
+        this.tokenVerificati = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(millisAllaScadenza(claims));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String generateJwtToken(String username) {
+        return builder(username).compact();
+    }
+
+    // Token con id utente e id capitale: il filtro può autenticare senza passare dal database (jwt.stateless.enabled)
+    public String generateJwtToken(UtenteAutenticato utente) {
+        JwtBuilder builder = builder(utente.email())
+                .claim(CLAIM_USER_ID, utente.userId().toString());
+        if (utente.capitaleId() != null) {
+            builder.claim(CLAIM_CAPITALE_ID, utente.capitaleId());
+        }
+        return builder.compact();
+    }
+
+    private JwtBuilder builder(String username) {
+        Date adesso = new Date();
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(jwtSecret, SignatureAlgorithm.HS512)
-                .compact();
+                .setIssuedAt(adesso)
+                .claim(CLAIM_EMESSO_MS, adesso.getTime())
+                .setExpiration(new Date(adesso.getTime() + jwtExpirationMs))
+                .signWith(jwtSecret, SignatureAlgorithm.HS512);
     }
 
+    // Principal ricostruito dai claims firmati; vuoto se il token non li contiene (token emessi senza capitale)
+    public static Optional<UtenteAutenticato> utenteDaClaims(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        Number capitaleId = claims.get(CLAIM_CAPITALE_ID, Number.class);
+        if (userId == null || capitaleId == null || claims.getSubject() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new UtenteAutenticato(UUID.fromString(userId), claims.getSubject(), capitaleId.longValue()));
+    }
+
+    // Millisecondo di emissione; per i token senza il claim ricade su iat (al secondo), null se manca anche quello
+    public static Long emessoMillis(Claims claims) {
+        Number millis = claims.get(CLAIM_EMESSO_MS, Number.class);
+        if (millis != null) {
+            return millis.longValue();
+        }
+        Date emesso = claims.getIssuedAt();
+        return emesso != null ? emesso.getTime() : null;
+    }
+
+    // Verifica la firma solo al primo utilizzo del token; le richieste successive costano una lookup
+    private Claims getClaimsVerificati(String token) {
+        Claims claims = tokenVerificati.getIfPresent(token);
+        if (claims != null) {
+            if (millisAllaScadenza(claims) > 0) {
+                return claims;
+            }
+            tokenVerificati.invalidate(token);
+            throw new ExpiredJwtException(null, claims, "Token scaduto");
+        }
+
+        claims = jwtParser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            tokenVerificati.put(token, claims);
+        }
+        return claims;
+    }
+
+    private static long millisAllaScadenza(Claims claims) {
+        Date scadenza = claims.getExpiration();
+        if (scadenza == null) {
+            return 0;
+        }
+        return Math.max(0, scadenza.getTime() - System.currentTimeMillis());
+    }
 
     public String getUsernameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(jwtSecret)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return getClaimsVerificati(token).getSubject();
+    }
+
+    // Verifica firma e scadenza una sola volta e restituisce il subject
+    public Optional<String> getUsernameIfValid(String token) {
+        try {
+            return Optional.ofNullable(getClaimsVerificati(token).getSubject());
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Token non valido: {}", e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    // Verifica firma e scadenza e restituisce tutti i claims
+    public Optional<Claims> getClaimsIfValid(String token) {
+        try {
+            return Optional.of(getClaimsVerificati(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Token non valido: {}", e.getMessage());
+        }
+        return Optional.empty();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(jwtSecret)
-                    .build()
-                    .parseClaimsJws(token);
+            getClaimsVerificati(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
-            System.out.println("Errore nella validazione del token: " + e.getMessage());
+            log.debug("Token non valido: {}", e.getMessage());
         }
         return false;
     }
-}
\ No newline at end of file
+}
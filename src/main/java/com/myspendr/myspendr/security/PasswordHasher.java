@@ -0,0 +1,105 @@
+package com.myspendr.myspendr.security;
+
+import com.myspendr.myspendr.exceptions.PasswordHashingBusyException;
+import com.myspendr.myspendr.exceptions.PasswordHashingTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// BCrypt su un pool dedicato e limitato: una raffica di login occupa al massimo workers + coda thread di Tomcat,
+// il resto viene rifiutato subito (429) invece di restare in attesa e bloccare le altre API.
+// Thread di piattaforma anche in modalità virtual thread: il lavoro è tutto CPU.
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final Timer tempoHashing;
+    private final Counter rifiutati;
+    private final Counter scaduti;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${myspendr.hashing.workers:0}") int numeroWorkers,
+                          @Value("${myspendr.hashing.queue-capacity:0}") int capacitaCoda,
+                          @Value("${myspendr.hashing.timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+
+        // Di default un worker per core e una coda di pochi secondi di lavoro
+        int workers = numeroWorkers > 0 ? numeroWorkers : Runtime.getRuntime().availableProcessors();
+        int coda = capacitaCoda > 0 ? capacitaCoda : workers * 4;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(coda),
+                Thread.ofPlatform().name("hashing-", 0).daemon(true).factory());
+
+        this.tempoHashing = Timer.builder("myspendr.hashing").register(meterRegistry);
+        this.rifiutati = Counter.builder("myspendr.hashing.rejected").tag("reason", "queue-full").register(meterRegistry);
+        this.scaduti = Counter.builder("myspendr.hashing.rejected").tag("reason", "timeout").register(meterRegistry);
+        Gauge.builder("myspendr.hashing.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    public String cifra(String password) {
+        return esegui(() -> passwordEncoder.encode(password));
+    }
+
+    public boolean verifica(String password, String hash) {
+        return esegui(() -> passwordEncoder.matches(password, hash));
+    }
+
+    // True se l'hash è stato calcolato con parametri diversi da quelli attuali (es. costo BCrypt più basso)
+    public boolean daAggiornare(String hash) {
+        return passwordEncoder.upgradeEncoding(hash);
+    }
+
+    private <T> T esegui(Callable<T> operazione) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> tempoHashing.recordCallable(operazione));
+        } catch (RejectedExecutionException e) {
+            rifiutati.increment();
+            log.warn("🚦 Coda hashing piena ({} in attesa): richiesta rifiutata", executor.getQueue().size());
+            throw new PasswordHashingBusyException("Troppe richieste di accesso, riprova tra poco.");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            scaduti.increment();
+            log.warn("⏳ Hashing non completato entro {} ms", timeoutMs);
+            throw new PasswordHashingTimeoutException("Servizio di accesso momentaneamente sovraccarico, riprova tra poco.");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingTimeoutException("Hashing interrotto");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
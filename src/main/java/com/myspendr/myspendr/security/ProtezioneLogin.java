@@ -0,0 +1,76 @@
+package com.myspendr.myspendr.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// Conteggio dei login falliti per email e per IP client, senza scritture sul database.
+// Per l'email il blocco viene poi salvato sull'utente (AuthService); per l'IP resta in memoria.
+@Slf4j
+@Component
+public class ProtezioneLogin {
+
+    private final TentativiFallitiTracker perEmail;
+    private final TentativiFallitiTracker perIp;
+    private final long bloccoIpMinuti;
+    private final long bloccoAccountMinuti;
+    private final MeterRegistry meterRegistry;
+
+    public ProtezioneLogin(MeterRegistry meterRegistry,
+                           @Value("${myspendr.login.max-tentativi:5}") int maxTentativiEmail,
+                           @Value("${myspendr.login.ip.max-tentativi:20}") int maxTentativiIp,
+                           @Value("${myspendr.login.finestra-minuti:15}") long finestraMinuti,
+                           @Value("${myspendr.login.blocco-minuti:10}") long bloccoAccountMinuti,
+                           @Value("${myspendr.login.ip.blocco-minuti:10}") long bloccoIpMinuti,
+                           @Value("${myspendr.login.max-chiavi:100000}") int maxChiavi,
+                           @Value("${myspendr.login.strisce:64}") int numeroStrisce) {
+        this.perEmail = new TentativiFallitiTracker(maxTentativiEmail, finestraMinuti, maxChiavi, numeroStrisce);
+        this.perIp = new TentativiFallitiTracker(maxTentativiIp, finestraMinuti, maxChiavi, numeroStrisce);
+        this.bloccoIpMinuti = bloccoIpMinuti;
+        this.bloccoAccountMinuti = bloccoAccountMinuti;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public long millisBloccoIp(String ip) {
+        return ip != null ? perIp.millisBlocco(ip) : 0;
+    }
+
+    // Registra il fallimento su email e IP; ritorna i tentativi rimasti per l'email (0 = da bloccare)
+    public int registraFallimento(String email, String ip) {
+        if (ip != null && perIp.registraFallimento(ip) >= perIp.getMaxTentativi()) {
+            perIp.blocca(ip, bloccoIpMinuti);
+            meterRegistry.counter("myspendr.login.lockouts", "type", "ip").increment();
+            log.warn("🚫 IP {} bloccato per {} minuti dopo troppi login falliti", ip, bloccoIpMinuti);
+        }
+        if (email == null) {
+            return perEmail.getMaxTentativi();
+        }
+        int fallimenti = perEmail.registraFallimento(chiaveEmail(email));
+        return Math.max(0, perEmail.getMaxTentativi() - fallimenti);
+    }
+
+    // Da chiamare quando il blocco dell'account è stato salvato o dopo un login riuscito
+    public void azzera(String email) {
+        perEmail.azzera(chiaveEmail(email));
+    }
+
+    public int getMaxTentativi() {
+        return perEmail.getMaxTentativi();
+    }
+
+    // Durata del blocco salvato sull'utente quando si esauriscono i tentativi
+    public long getBloccoAccountMinuti() {
+        return bloccoAccountMinuti;
+    }
+
+    public void registraBloccoAccount() {
+        meterRegistry.counter("myspendr.login.lockouts", "type", "account").increment();
+    }
+
+    private static String chiaveEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,65 @@
+package com.myspendr.myspendr.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Denylist in memoria per gli access token: ogni voce vive quanto un access token, poi il token è scaduto comunque.
+// Nessun limite di dimensione: una voce espulsa prima della scadenza riattiverebbe un token revocato.
+// - jti revocati (logout)
+// - per utente, istante sotto il quale i token sono revocati (cambio/reset password)
+// - per utente, istante sotto il quale i claims uid/cid non sono più affidabili (capitale creato o eliminato)
+// Vale per la singola istanza, come la cache utenti di LookupCacheService.
+@Component
+public class RevocaTokenStore {
+
+    private final Cache<String, Boolean> jtiRevocati;
+    private final Cache<String, Long> revocatiFinoA;
+    private final Cache<String, Long> claimsObsoletiFinoA;
+
+    public RevocaTokenStore(@Value("${jwt.access-expiration-ms:900000}") long durataAccessToken) {
+        Duration durata = Duration.ofMillis(durataAccessToken);
+        this.jtiRevocati = Caffeine.newBuilder().expireAfterWrite(durata).build();
+        this.revocatiFinoA = Caffeine.newBuilder().expireAfterWrite(durata).build();
+        this.claimsObsoletiFinoA = Caffeine.newBuilder().expireAfterWrite(durata).build();
+    }
+
+    public void revoca(Claims claims) {
+        if (claims.getId() != null) {
+            jtiRevocati.put(claims.getId(), Boolean.TRUE);
+        }
+    }
+
+    public void revocaTutti(String email) {
+        revocatiFinoA.put(email, System.currentTimeMillis());
+    }
+
+    public void segnaClaimsObsoleti(String email) {
+        claimsObsoletiFinoA.put(email, System.currentTimeMillis());
+    }
+
+    public boolean isRevocato(Claims claims) {
+        if (claims.getId() != null && jtiRevocati.getIfPresent(claims.getId()) != null) {
+            return true;
+        }
+        return emessoEntro(claims, revocatiFinoA.getIfPresent(claims.getSubject()));
+    }
+
+    // False se i dati dell'utente sono cambiati dopo l'emissione: il chiamante deve rileggerli
+    public boolean claimsAggiornati(Claims claims) {
+        return !emessoEntro(claims, claimsObsoletiFinoA.getIfPresent(claims.getSubject()));
+    }
+
+    // Token emesso prima del watermark: un login subito dopo la revoca deve restare valido
+    private static boolean emessoEntro(Claims claims, Long watermark) {
+        if (watermark == null) {
+            return false;
+        }
+        Long emesso = JwtUtils.emessoMillis(claims);
+        return emesso == null || emesso < watermark;
+    }
+}
@@ -1,7 +1,11 @@
 package com.myspendr.myspendr.security;
 
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -9,6 +13,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -20,14 +25,19 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    // Porta dedicata di Actuator (management.server.port), da non esporre pubblicamente; -1 se non configurata
+    private final int portaManagement;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+                          @Value("${management.server.port:-1}") int portaManagement) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.portaManagement = portaManagement;
     }
 
+    // Alzando il costo, gli hash esistenti vengono ricalcolati al primo login riuscito (vedi AuthService.login)
     @Bean
-    PasswordEncoder getBCrypt() {
-        return new BCryptPasswordEncoder(12);
+    PasswordEncoder getBCrypt(@Value("${myspendr.hashing.bcrypt-strength:12}") int costo) {
+        return new BCryptPasswordEncoder(costo);
     }
 
     @Bean
@@ -40,11 +50,22 @@ public class SecurityConfig {
 
         httpSecurity.authorizeHttpRequests(authorizationManagerRequestMatcherRegistry ->
                 authorizationManagerRequestMatcherRegistry
+                        // Il forward a /error non riporta il JWT: senza questa regola ogni 403 o 404 diventerebbe un 401
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         .requestMatchers("/auth/**", "/telegram").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Lo scraping è libero solo sulla porta di management; sulla porta applicativa le metriche
+                        // del servizio non vanno mostrate a nessuno, nemmeno agli utenti autenticati
+                        .requestMatchers(this::richiestaSuPortaManagement).permitAll()
+                        .requestMatchers("/actuator/prometheus").denyAll()
                         .anyRequest().authenticated()
         );
 
 
+        // Token mancante, non valido, revocato o di un utente eliminato: 401, così il client rinnova o rifà il login
+        httpSecurity.exceptionHandling(exceptionHandlingConfigurer ->
+                exceptionHandlingConfigurer.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)));
+
         httpSecurity.cors(cors -> cors.configurationSource(corsConfigurationSource()));
 
         httpSecurity.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -52,6 +73,10 @@ public class SecurityConfig {
 
     }
 
+    private boolean richiestaSuPortaManagement(HttpServletRequest request) {
+        return portaManagement > 0 && request.getLocalPort() == portaManagement;
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration configuration) throws Exception {
         return configuration.getAuthenticationManager();
@@ -0,0 +1,114 @@
+package com.myspendr.myspendr.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Contatore di fallimenti a finestra scorrevole, tutto in memoria.
+// Le chiavi sono distribuite su N strisce con lock indipendenti: richieste su chiavi diverse non si contendono
+// lo stesso lock. Ogni striscia è una LRU limitata, quindi un attacco con molte chiavi non fa crescere la memoria.
+class TentativiFallitiTracker {
+
+    private static final class Voce {
+        // Buffer circolare con gli istanti (nanoTime) degli ultimi maxTentativi fallimenti
+        final long[] fallimenti;
+        int prossimo;
+        int registrati;
+        long bloccatoFino;
+
+        Voce(int maxTentativi) {
+            this.fallimenti = new long[maxTentativi];
+        }
+    }
+
+    private static final class Striscia extends LinkedHashMap<String, Voce> {
+        private final int capacita;
+
+        Striscia(int capacita) {
+            super(16, 0.75f, true);
+            this.capacita = capacita;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Voce> eldest) {
+            return size() > capacita;
+        }
+    }
+
+    private final Striscia[] strisce;
+    private final int maxTentativi;
+    private final long finestraNanos;
+
+    TentativiFallitiTracker(int maxTentativi, long finestraMinuti, int maxChiavi, int numeroStrisce) {
+        this.maxTentativi = maxTentativi;
+        this.finestraNanos = TimeUnit.MINUTES.toNanos(finestraMinuti);
+        this.strisce = new Striscia[numeroStrisce];
+        int capacita = Math.max(1, maxChiavi / numeroStrisce);
+        for (int i = 0; i < numeroStrisce; i++) {
+            strisce[i] = new Striscia(capacita);
+        }
+    }
+
+    // Registra un fallimento e restituisce quanti ne cadono nella finestra (al massimo maxTentativi)
+    int registraFallimento(String chiave) {
+        long adesso = System.nanoTime();
+        Striscia striscia = striscia(chiave);
+        synchronized (striscia) {
+            Voce voce = striscia.computeIfAbsent(chiave, k -> new Voce(maxTentativi));
+            voce.fallimenti[voce.prossimo] = adesso;
+            voce.prossimo = (voce.prossimo + 1) % maxTentativi;
+            voce.registrati = Math.min(voce.registrati + 1, maxTentativi);
+
+            int nellaFinestra = 0;
+            for (int i = 0; i < voce.registrati; i++) {
+                if (adesso - voce.fallimenti[i] <= finestraNanos) {
+                    nellaFinestra++;
+                }
+            }
+            return nellaFinestra;
+        }
+    }
+
+    int getMaxTentativi() {
+        return maxTentativi;
+    }
+
+    // Blocco solo in memoria; azzera i fallimenti registrati
+    void blocca(String chiave, long durataMinuti) {
+        Striscia striscia = striscia(chiave);
+        synchronized (striscia) {
+            Voce voce = new Voce(maxTentativi);
+            voce.bloccatoFino = System.nanoTime() + TimeUnit.MINUTES.toNanos(durataMinuti);
+            striscia.put(chiave, voce);
+        }
+    }
+
+    // Millisecondi di blocco rimanenti, 0 se la chiave non è bloccata
+    long millisBlocco(String chiave) {
+        Striscia striscia = striscia(chiave);
+        synchronized (striscia) {
+            Voce voce = striscia.get(chiave);
+            if (voce == null || voce.bloccatoFino == 0) {
+                return 0;
+            }
+            long restanti = voce.bloccatoFino - System.nanoTime();
+            if (restanti <= 0) {
+                striscia.remove(chiave);
+                return 0;
+            }
+            return TimeUnit.NANOSECONDS.toMillis(restanti);
+        }
+    }
+
+    void azzera(String chiave) {
+        Striscia striscia = striscia(chiave);
+        synchronized (striscia) {
+            striscia.remove(chiave);
+        }
+    }
+
+    private Striscia striscia(String chiave) {
+        int h = chiave.hashCode();
+        return strisce[Math.floorMod(h ^ (h >>> 16), strisce.length)];
+    }
+}
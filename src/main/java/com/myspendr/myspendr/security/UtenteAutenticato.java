@@ -0,0 +1,31 @@
+package com.myspendr.myspendr.security;
+
+import com.myspendr.myspendr.model.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.Principal;
+import java.util.Optional;
+import java.util.UUID;
+
+// Principal risolto una sola volta dal filtro JWT e riusato dai service per tutta la richiesta
+public record UtenteAutenticato(UUID userId, String email, Long capitaleId) implements Principal {
+
+    public static UtenteAutenticato from(User user) {
+        Long capitaleId = user.getCapitale() != null ? user.getCapitale().getId() : null;
+        return new UtenteAutenticato(user.getId(), user.getEmail(), capitaleId);
+    }
+
+    public static Optional<UtenteAutenticato> corrente() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UtenteAutenticato utente) {
+            return Optional.of(utente);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
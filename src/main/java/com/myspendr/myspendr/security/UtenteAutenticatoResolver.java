@@ -0,0 +1,32 @@
+package com.myspendr.myspendr.security;
+
+import com.myspendr.myspendr.exceptions.UserNotFoundException;
+import com.myspendr.myspendr.services.LookupCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class UtenteAutenticatoResolver {
+
+    private final JwtUtils jwtUtils;
+    private final LookupCacheService lookupCacheService;
+
+    public UtenteAutenticatoResolver(JwtUtils jwtUtils, LookupCacheService lookupCacheService) {
+        this.jwtUtils = jwtUtils;
+        this.lookupCacheService = lookupCacheService;
+    }
+
+    // Usa il principal già messo nel SecurityContext dal filtro; rilegge il token solo se manca
+    public UtenteAutenticato risolvi(String authHeader) {
+        return UtenteAutenticato.corrente().orElseGet(() -> {
+            String email = jwtUtils.getUsernameFromJwtToken(authHeader.replace("Bearer ", "").trim());
+            UtenteAutenticato utente = lookupCacheService.findUtenteByEmail(email);
+            if (utente == null) {
+                log.warn("❌ Utente non trovato per email: {}", email);
+                throw new UserNotFoundException("Utente non trovato");
+            }
+            return utente;
+        });
+    }
+}
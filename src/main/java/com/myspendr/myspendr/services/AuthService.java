@@ -6,13 +6,19 @@ import com.myspendr.myspendr.dto.RegisterRequest;
 import com.myspendr.myspendr.dto.ResetPasswordRequest;
 import com.myspendr.myspendr.exceptions.EmailAlreadyExistsException;
 import com.myspendr.myspendr.exceptions.InvalidCredentialsException;
+import com.myspendr.myspendr.exceptions.PasswordHashingBusyException;
 import com.myspendr.myspendr.exceptions.UserNotFoundException;
 import com.myspendr.myspendr.model.User;
 import com.myspendr.myspendr.model.VerificationToken;
 import com.myspendr.myspendr.repositories.UserRepository;
 import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.PasswordHasher;
+import com.myspendr.myspendr.security.ProtezioneLogin;
+import com.myspendr.myspendr.security.RevocaTokenStore;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
@@ -23,20 +29,29 @@ import java.time.LocalDateTime;
 
 @Slf4j
 @Service
+@Timed("myspendr.service")
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtils jwtUtils;
     private final EmailService emailService;
     private final VerificationTokenService verificationTokenService;
+    private final LookupCacheService lookupCacheService;
+    private final ProtezioneLogin protezioneLogin;
+    private final RefreshTokenService refreshTokenService;
+    private final RevocaTokenStore revocaTokenStore;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtils jwtUtils, EmailService emailService, VerificationTokenService verificationTokenService) {
+    public AuthService(UserRepository userRepository, PasswordHasher passwordHasher, JwtUtils jwtUtils, @Lazy EmailService emailService, VerificationTokenService verificationTokenService, LookupCacheService lookupCacheService, ProtezioneLogin protezioneLogin, RefreshTokenService refreshTokenService, RevocaTokenStore revocaTokenStore) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtUtils = jwtUtils;
         this.emailService = emailService;
         this.verificationTokenService = verificationTokenService;
+        this.lookupCacheService = lookupCacheService;
+        this.protezioneLogin = protezioneLogin;
+        this.refreshTokenService = refreshTokenService;
+        this.revocaTokenStore = revocaTokenStore;
     }
 
     public void register(RegisterRequest request) {
@@ -50,7 +65,7 @@ public class AuthService {
                 .cognome(request.getCognome())
                 .email(request.getEmail())
                 .username(request.getUsername())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHasher.cifra(request.getPassword()))
                 .dataRegistrazione(LocalDate.now())
                 .tentativiFalliti(0)
                 .emailConfirmed(false)
@@ -86,10 +101,18 @@ public class AuthService {
     }
 
 
-    public LoginResponse login(LoginRequest request) {
+    public LoginResponse login(LoginRequest request, String ipClient) {
         try {
+            long millisBloccoIp = protezioneLogin.millisBloccoIp(ipClient);
+            if (millisBloccoIp > 0) {
+                long minutiRestanti = Duration.ofMillis(millisBloccoIp).toMinutes();
+                log.warn("⏳ Login bloccato per IP {}: ancora {} minuti", ipClient, minutiRestanti);
+                throw new RuntimeException("Troppi tentativi falliti. Riprova tra " + minutiRestanti + " minuti.");
+            }
+
             User user = userRepository.findByEmail(request.getEmail())
                     .orElseThrow(() -> {
+                        protezioneLogin.registraFallimento(null, ipClient);
                         log.warn("❌ Tentativo login: utente {} non trovato", request.getEmail());
                         return new RuntimeException("Utente non trovato");
                     });
@@ -100,45 +123,79 @@ public class AuthService {
                 throw new RuntimeException("Account bloccato. Riprova tra " + minutiRestanti + " minuti.");
             }
 
-            if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-                int nuoviTentativi = user.getTentativiFalliti() + 1;
-                user.setTentativiFalliti(nuoviTentativi);
+            // I fallimenti si contano in memoria: sul database scrivo solo quando scatta il blocco
+            if (!passwordHasher.verifica(request.getPassword(), user.getPassword())) {
+                int tentativiRimasti = protezioneLogin.registraFallimento(user.getEmail(), ipClient);
 
-                if (nuoviTentativi >= 5) {
-                    user.setBloccatoFino(LocalDateTime.now().plusMinutes(10));
+                if (tentativiRimasti == 0) {
+                    long minutiBlocco = protezioneLogin.getBloccoAccountMinuti();
+                    user.setBloccatoFino(LocalDateTime.now().plusMinutes(minutiBlocco));
                     user.setTentativiFalliti(0);
                     userRepository.save(user);
-                    log.warn("🚫 Account bloccato per {} dopo 5 tentativi falliti", user.getEmail());
-                    throw new RuntimeException("Hai superato i tentativi. Account bloccato per 10 minuti.");
+                    protezioneLogin.azzera(user.getEmail());
+                    protezioneLogin.registraBloccoAccount();
+                    log.warn("🚫 Account bloccato per {} dopo {} tentativi falliti", user.getEmail(), protezioneLogin.getMaxTentativi());
+                    throw new RuntimeException("Hai superato i tentativi. Account bloccato per " + minutiBlocco + " minuti.");
                 }
 
-                userRepository.save(user);
-                log.warn("❌ Login fallito per {} - Tentativi rimasti: {}", user.getEmail(), 5 - nuoviTentativi);
-                throw new RuntimeException("Password errata. Tentativi rimasti: " + (5 - nuoviTentativi));
+                log.warn("❌ Login fallito per {} - Tentativi rimasti: {}", user.getEmail(), tentativiRimasti);
+                throw new RuntimeException("Password errata. Tentativi rimasti: " + tentativiRimasti);
+            }
+
+            protezioneLogin.azzera(user.getEmail());
+            boolean modificato = false;
+
+            // ✅ Reset tentativi falliti e sblocco, solo se c'è qualcosa da azzerare
+            if (user.getTentativiFalliti() == null || user.getTentativiFalliti() != 0) {
+                user.setTentativiFalliti(0);
+                modificato = true;
+            }
+            if (user.getBloccatoFino() != null) {
+                user.setBloccatoFino(null);
+                modificato = true;
             }
 
-            // ✅ Reset tentativi falliti e sblocco
-            user.setTentativiFalliti(0);
-            user.setBloccatoFino(null);
+            // 🔁 Hash calcolato con un costo BCrypt diverso da quello attuale: lo ricalcolo ora che ho la password in chiaro
+            if (passwordHasher.daAggiornare(user.getPassword())) {
+                user.setPassword(passwordHasher.cifra(request.getPassword()));
+                modificato = true;
+                log.info("🔁 Hash password aggiornato per {}", user.getEmail());
+            }
 
             // ✅ Genera telegramToken se non presente
             if (user.getTelegramToken() == null) {
                 user.setTelegramToken(java.util.UUID.randomUUID().toString());
+                modificato = true;
             }
 
-            userRepository.save(user);
+            if (modificato) {
+                userRepository.save(user);
+            }
 
-            String token = jwtUtils.generateJwtToken(user.getEmail());
+            String token = jwtUtils.generateJwtToken(UtenteAutenticato.from(user));
+            String refreshToken = refreshTokenService.emetti(user);
             log.info("✅ Login riuscito per {}", user.getEmail());
 
-            return new LoginResponse(token, user.getUsername(), user.getTelegramToken());
+            return new LoginResponse(token, refreshToken, user.getUsername(), user.getTelegramToken());
 
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Errore durante login per {}", request.getEmail(), e);
             throw new RuntimeException("Errore durante il login", e);
         }
     }
 
+    // 🚪 Chiude la sessione del refresh token e rende subito inutilizzabile l'access token presentato
+    public void logout(String authHeader, String refreshToken) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwtUtils.getClaimsIfValid(authHeader.substring(7)).ifPresent(revocaTokenStore::revoca);
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoca(refreshToken);
+        }
+    }
+
     public void forgotPassword(String email) {
         try {
             log.info("🔐 Richiesta reset password per: {}", email);
@@ -150,11 +207,16 @@ public class AuthService {
                     });
 
             String tempPassword = generateSecurePassword();
-            user.setPassword(passwordEncoder.encode(tempPassword));
+            user.setPassword(passwordHasher.cifra(tempPassword));
             userRepository.save(user);
+            refreshTokenService.revocaTutti(user.getId());
+            revocaTokenStore.revocaTutti(user.getEmail());
+            lookupCacheService.evictUtente(user.getEmail());
 
             emailService.sendPasswordResetEmail(user.getEmail(), user.getNome(), tempPassword);
             log.info("✅ Password temporanea inviata a {}", user.getEmail());
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Errore durante reset password per {}", email, e);
             throw new RuntimeException("Errore durante il reset della password", e);
@@ -180,15 +242,20 @@ public class AuthService {
             User user = userRepository.findByEmail(userEmail)
                     .orElseThrow(() -> new UserNotFoundException("Utente non trovato"));
 
-            if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            if (!passwordHasher.verifica(request.getCurrentPassword(), user.getPassword())) {
                 log.warn("❌ Password attuale errata per utente {}", userEmail);
                 throw new InvalidCredentialsException("Password attuale non corretta");
             }
 
-            user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+            user.setPassword(passwordHasher.cifra(request.getNewPassword()));
             userRepository.save(user);
+            refreshTokenService.revocaTutti(user.getId());
+            revocaTokenStore.revocaTutti(user.getEmail());
+            lookupCacheService.evictUtente(user.getEmail());
 
             log.info("✅ Password aggiornata per {}", userEmail);
+        } catch (PasswordHashingBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("❌ Errore durante il cambio password", e);
             throw new RuntimeException("Errore durante il cambio password", e);
@@ -0,0 +1,117 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.events.SpesaMensileAggiornataEvent;
+import com.myspendr.myspendr.model.BudgetMensile;
+import com.myspendr.myspendr.repositories.BudgetMensileRepository;
+import com.myspendr.myspendr.telegram.PartitionedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 🔔 Avvisi budget fuori dal percorso della richiesta: dopo il commit l'evento finisce in coda,
+// le raffiche sullo stesso (utente, categoria, mese) si fondono in un solo controllo
+// e ogni soglia viene notificata una volta sola per attraversamento.
+@Slf4j
+@Service
+public class BudgetAvvisoService {
+
+    private static final int SOGLIA_ATTENZIONE = 80;
+    private static final int SOGLIA_SUPERATO = 100;
+
+    private final BudgetMensileRepository budgetRepo;
+    private final SpesaMensileService spesaMensileService;
+    private final TelegramNotificationService telegramNotificationService;
+    private final PartitionedExecutor workers;
+    private final Set<SpesaMensileAggiornataEvent> inAttesa = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+    private final Timer tempoControllo;
+
+    public BudgetAvvisoService(BudgetMensileRepository budgetRepo,
+                               SpesaMensileService spesaMensileService,
+                               TelegramNotificationService telegramNotificationService,
+                               MeterRegistry meterRegistry,
+                               @Value("${myspendr.budget.avvisi.workers:2}") int numeroWorkers,
+                               @Value("${myspendr.budget.avvisi.queue-capacity:1000}") int capacitaCoda,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.budgetRepo = budgetRepo;
+        this.spesaMensileService = spesaMensileService;
+        this.telegramNotificationService = telegramNotificationService;
+        this.workers = new PartitionedExecutor("budget-avvisi", numeroWorkers, capacitaCoda, virtualThreads);
+        this.meterRegistry = meterRegistry;
+        this.tempoControllo = Timer.builder("myspendr.budget.check")
+                .description("Durata del controllo soglie di un budget")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSpesaMensileAggiornata(SpesaMensileAggiornataEvent evento) {
+        if (!inAttesa.add(evento)) {
+            return; // un controllo per la stessa chiave è già in coda
+        }
+        long chiave = evento.userId().getMostSignificantBits() ^ evento.userId().getLeastSignificantBits();
+        if (!workers.submit(chiave, () -> tempoControllo.record(() -> controlla(evento)))) {
+            inAttesa.remove(evento);
+            log.warn("⏳ Coda avvisi budget piena: controllo saltato per utente {} categoria {}", evento.userId(), evento.categoria());
+        }
+    }
+
+    private void controlla(SpesaMensileAggiornataEvent evento) {
+        // Tolgo la chiave prima di leggere: una spesa arrivata nel frattempo riaccoda un nuovo controllo
+        inAttesa.remove(evento);
+        try {
+            BudgetMensile budget = budgetRepo.findByUser_IdAndCategoriaAndMeseAndAnno(
+                    evento.userId(), evento.categoria(), evento.mese(), evento.anno()).orElse(null);
+            if (budget == null || budget.getLimite() == null || budget.getLimite().signum() <= 0) {
+                return;
+            }
+
+            BigDecimal limite = budget.getLimite();
+            BigDecimal speso = spesaMensileService.getSpesa(evento.userId(), evento.categoria(), evento.mese(), evento.anno());
+            int soglia = sogliaRaggiunta(speso, limite);
+            int notificata = budget.getSogliaNotificata() != null ? budget.getSogliaNotificata() : 0;
+
+            if (soglia < notificata) {
+                // La spesa è scesa (movimento eliminato o limite alzato): la soglia potrà essere notificata di nuovo
+                budgetRepo.abbassaSogliaNotificata(budget.getId(), soglia);
+            } else if (soglia > notificata && budgetRepo.alzaSogliaNotificata(budget.getId(), soglia) == 1) {
+                // L'UPDATE condizionale evita doppi avvisi anche con più nodi
+                if (soglia >= SOGLIA_SUPERATO) {
+                    telegramNotificationService.inviaAvvisoBudgetSuperato(evento.userId(), evento.categoria(),
+                            evento.mese(), evento.anno(), speso, limite);
+                } else {
+                    telegramNotificationService.inviaAvvisoBudgetInEsaurimento(evento.userId(), evento.categoria(),
+                            evento.mese(), evento.anno(), speso, limite);
+                }
+                meterRegistry.counter("myspendr.budget.alerts", "soglia", String.valueOf(soglia)).increment();
+                log.info("🔔 Avviso budget {}% inviato a utente {} per {} {}/{}", soglia, evento.userId(),
+                        evento.categoria(), evento.mese(), evento.anno());
+            }
+        } catch (Exception e) {
+            log.error("❌ Errore nel controllo budget per utente {} categoria {}", evento.userId(), evento.categoria(), e);
+        }
+    }
+
+    private static int sogliaRaggiunta(BigDecimal speso, BigDecimal limite) {
+        if (speso.compareTo(limite) > 0) {
+            return SOGLIA_SUPERATO;
+        }
+        // speso * 100 >= limite * 80, senza divisioni
+        if (speso.multiply(BigDecimal.valueOf(100)).compareTo(limite.multiply(BigDecimal.valueOf(SOGLIA_ATTENZIONE))) >= 0) {
+            return SOGLIA_ATTENZIONE;
+        }
+        return 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown(5);
+    }
+}
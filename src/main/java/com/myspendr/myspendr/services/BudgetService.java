@@ -2,50 +2,40 @@ package com.myspendr.myspendr.services;
 
 import com.myspendr.myspendr.dto.BudgetRequest;
 import com.myspendr.myspendr.dto.BudgetResponse;
-import com.myspendr.myspendr.exceptions.UserNotFoundException;
+import com.myspendr.myspendr.events.SpesaMensileAggiornataEvent;
 import com.myspendr.myspendr.model.*;
 import com.myspendr.myspendr.repositories.BudgetMensileRepository;
-import com.myspendr.myspendr.repositories.MovimentoRepository;
-import com.myspendr.myspendr.repositories.TelegramUserRepository;
 import com.myspendr.myspendr.repositories.UserRepository;
-import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import com.myspendr.myspendr.security.UtenteAutenticatoResolver;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.List;
 
 @Slf4j
 @Service
+@Timed("myspendr.service")
 @RequiredArgsConstructor
 public class BudgetService {
 
     private final BudgetMensileRepository budgetRepo;
-    private final MovimentoRepository movimentoRepo;
+    private final SpesaMensileService spesaMensileService;
     private final UserRepository userRepo;
-    private final JwtUtils jwtUtils;
-    private final TelegramUserRepository telegramUserRepository;
-    private final TelegramNotificationService telegramNotificationService;
-
-
-    private User getUserFromToken(String authHeader) {
-        String token = authHeader.replace("Bearer ", "").trim();
-        String email = jwtUtils.getUsernameFromJwtToken(token);
-        log.info("🔐 Estrazione utente da token per email: {}", email);
-        return userRepo.findByEmail(email)
-                .orElseThrow(() -> {
-                    log.warn("❌ Utente non trovato per email: {}", email);
-                    return new UserNotFoundException("Utente non trovato");
-                });
-    }
+    private final UtenteAutenticatoResolver utenteResolver;
+    private final ApplicationEventPublisher eventPublisher;
+
 
     @Transactional
     public void setBudget(String authHeader, BudgetRequest req) {
         try {
-            User user = getUserFromToken(authHeader);
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            User user = userRepo.getReferenceById(utente.userId());
 
             BudgetMensile budget = budgetRepo.findByUserAndCategoriaAndMeseAndAnno(
                     user, req.getCategoria(), req.getMese(), req.getAnno()
@@ -58,9 +48,11 @@ public class BudgetService {
 
             budget.setLimite(req.getLimite());
             budgetRepo.save(budget);
+            // Con il nuovo limite le soglie di avviso vanno rivalutate
+            eventPublisher.publishEvent(new SpesaMensileAggiornataEvent(utente.userId(), req.getCategoria(), req.getAnno(), req.getMese()));
 
             log.info("💾 Budget salvato per utente {}, categoria {}, mese {}/{}",
-                    user.getEmail(), req.getCategoria(), req.getMese(), req.getAnno());
+                    utente.email(), req.getCategoria(), req.getMese(), req.getAnno());
 
         } catch (Exception e) {
             log.error("❌ Errore nel salvataggio del budget", e);
@@ -70,8 +62,9 @@ public class BudgetService {
 
     public BudgetResponse getBudget(String authHeader, CategoriaMovimento categoria, int mese, int anno) {
         try {
-            User user = getUserFromToken(authHeader);
-            log.info("📥 Recupero budget per utente {}, categoria {}, mese {}/{}", user.getEmail(), categoria, mese, anno);
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            User user = userRepo.getReferenceById(utente.userId());
+            log.info("📥 Recupero budget per utente {}, categoria {}, mese {}/{}", utente.email(), categoria, mese, anno);
 
             BudgetMensile budget = budgetRepo.findByUserAndCategoriaAndMeseAndAnno(user, categoria, mese, anno)
                     .orElse(null);
@@ -102,20 +95,12 @@ public class BudgetService {
     }
 
 
+    // Una lookup sul contatore mensile invece di caricare e sommare le uscite del mese
     private BigDecimal getSpesaTotale(User user, CategoriaMovimento categoria, int mese, int anno) {
         try {
-            LocalDate inizio = LocalDate.of(anno, mese, 1);
-            LocalDate fine = inizio.withDayOfMonth(inizio.lengthOfMonth());
-
-            List<Movimento> spese = movimentoRepo.findByCapitale_UserAndCategoriaAndTipoAndDataBetween(
-                    user, categoria, TipoMovimento.USCITA, inizio, fine
-            );
+            BigDecimal totale = spesaMensileService.getSpesa(user.getId(), categoria, mese, anno);
 
-            BigDecimal totale = spese.stream()
-                    .map(Movimento::getImporto)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            log.info("💸 Totale speso da {} per {}: {}", user.getEmail(), categoria, totale);
+            log.info("💸 Totale speso da utente {} per {}: {}", user.getId(), categoria, totale);
             return totale;
         } catch (Exception e) {
             log.error("❌ Errore nel calcolo delle spese", e);
@@ -123,35 +108,22 @@ public class BudgetService {
         }
     }
 
+    // Una sola query: i budget del mese già uniti ai contatori di spesa
     public List<BudgetResponse> getAllBudgets(String authHeader, int mese, int anno) {
         try {
-            User user = getUserFromToken(authHeader);
-            log.info("📊 Recupero TUTTI i budget per utente {}, mese {}/{}", user.getEmail(), mese, anno);
-
-            List<BudgetMensile> budgets = budgetRepo.findByUserAndMeseAndAnno(user, mese, anno);
-
-            return budgets.stream()
-                    .map(budget -> {
-                        try {
-                            BigDecimal speso = getSpesaTotale(user, budget.getCategoria(), mese, anno);
-                            BigDecimal residuo = budget.getLimite().subtract(speso);
-                            boolean superato = speso.compareTo(budget.getLimite()) > 0;
-
-                            return BudgetResponse.builder()
-                                    .categoria(budget.getCategoria())
-                                    .limite(budget.getLimite())
-                                    .speso(speso)
-                                    .residuo(residuo)
-                                    .superato(superato)
-                                    .mese(mese)
-                                    .anno(anno)
-                                    .build();
-                        } catch (Exception e) {
-                            log.error("❌ Errore nella categoria " + budget.getCategoria(), e);
-                            return null;
-                        }
-                    })
-                    .filter(b -> b != null)
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            log.info("📊 Recupero TUTTI i budget per utente {}, mese {}/{}", utente.email(), mese, anno);
+
+            return budgetRepo.findConSpesa(utente.userId(), mese, anno).stream()
+                    .map(b -> BudgetResponse.builder()
+                            .categoria(b.getCategoria())
+                            .limite(b.getLimite())
+                            .speso(b.getSpeso())
+                            .residuo(b.getLimite().subtract(b.getSpeso()))
+                            .superato(b.getSpeso().compareTo(b.getLimite()) > 0)
+                            .mese(mese)
+                            .anno(anno)
+                            .build())
                     .toList();
 
         } catch (Exception e) {
@@ -160,34 +132,5 @@ public class BudgetService {
         }
     }
 
-    public void controllaSuperamentoEBotta(User user, CategoriaMovimento categoria, LocalDate data) {
-        try {
-            int mese = data.getMonthValue();
-            int anno = data.getYear();
-
-            BudgetMensile budget = budgetRepo.findByUserAndCategoriaAndMeseAndAnno(user, categoria, mese, anno)
-                    .orElse(null);
-
-            if (budget != null) {
-                BigDecimal limite = budget.getLimite();
-                BigDecimal speso = getSpesaTotale(user, categoria, mese, anno);
-
-                if (speso.compareTo(limite) > 0) {
-                    telegramUserRepository.findByUser(user).ifPresent(telegramUser -> {
-                        BigDecimal sforamento = speso.subtract(limite);
-                        String messaggio = "⚠️ *Budget Superato!*\nHai speso *" + speso + "€* su un limite di *" + limite + "€* per la categoria *" + categoria + "*.\nSforamento: *" + sforamento + "€*";
-
-                        telegramNotificationService.inviaAvvisoBudgetSuperato(user, categoria, mese, anno, speso, limite);
-
-
-                    });
-                }
-            }
-
-        } catch (Exception e) {
-            log.error("❌ Errore nel controllo budget da app", e);
-        }
-    }
-
 
 }
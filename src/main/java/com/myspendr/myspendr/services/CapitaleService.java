@@ -4,13 +4,15 @@ import com.myspendr.myspendr.dto.CapitaleRequest;
 import com.myspendr.myspendr.dto.CapitaleResponse;
 import com.myspendr.myspendr.dto.ReportCapitaleDTO;
 import com.myspendr.myspendr.exceptions.CapitaleNotFoundException;
-import com.myspendr.myspendr.exceptions.UserNotFoundException;
 import com.myspendr.myspendr.model.Capitale;
-import com.myspendr.myspendr.model.User;
+import com.myspendr.myspendr.model.SnapshotCapitale;
 import com.myspendr.myspendr.repositories.CapitaleRepository;
 import com.myspendr.myspendr.repositories.MovimentoRepository;
+import com.myspendr.myspendr.repositories.SnapshotCapitaleRepository;
 import com.myspendr.myspendr.repositories.UserRepository;
-import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import com.myspendr.myspendr.security.UtenteAutenticatoResolver;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -18,43 +20,45 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 @Slf4j
 @Service
+@Timed("myspendr.service")
 public class CapitaleService {
 
     private final CapitaleRepository capitaleRepository;
     private final UserRepository userRepository;
-    private final JwtUtils jwtUtils;
+    private final UtenteAutenticatoResolver utenteResolver;
     private final MovimentoRepository movimentoRepository;
+    private final LookupCacheService lookupCacheService;
+    private final SpesaMensileService spesaMensileService;
+    private final RiepilogoMensileService riepilogoMensileService;
+    private final SnapshotCapitaleRepository snapshotRepository;
 
-    public CapitaleService(CapitaleRepository capitaleRepository, UserRepository userRepository, JwtUtils jwtUtils, MovimentoRepository movimentoRepository) {
+    private static final int MESI_REPORT_MENSILE = 24;
+    private static final int ANNI_REPORT_ANNUALE = 10;
+    private static final DateTimeFormatter FORMATO_MESE = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    public CapitaleService(CapitaleRepository capitaleRepository, UserRepository userRepository, UtenteAutenticatoResolver utenteResolver, MovimentoRepository movimentoRepository, LookupCacheService lookupCacheService, SpesaMensileService spesaMensileService, RiepilogoMensileService riepilogoMensileService, SnapshotCapitaleRepository snapshotRepository) {
         this.capitaleRepository = capitaleRepository;
         this.userRepository = userRepository;
-        this.jwtUtils = jwtUtils;
+        this.utenteResolver = utenteResolver;
         this.movimentoRepository = movimentoRepository;
-    }
-
-    private User getUserFromToken(String authHeader) {
-        String token = authHeader.replace("Bearer ", "").trim();
-        String email = jwtUtils.getUsernameFromJwtToken(token);
-        log.info("Estrazione utente da token per email: {}", email);
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> {
-                    log.warn("Utente non trovato per email: {}", email);
-                    return new UserNotFoundException("Utente non trovato");
-                });
+        this.lookupCacheService = lookupCacheService;
+        this.spesaMensileService = spesaMensileService;
+        this.riepilogoMensileService = riepilogoMensileService;
+        this.snapshotRepository = snapshotRepository;
     }
 
     public CapitaleResponse createCapitale(String authHeader, CapitaleRequest req) {
         try {
-            User user = getUserFromToken(authHeader);
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
 
-            if (capitaleRepository.findByUserId(user.getId()).isPresent()) {
+            if (capitaleRepository.findByUserId(utente.userId()).isPresent()) {
                 throw new IllegalStateException("Il capitale è già stato creato per questo utente.");
             }
 
@@ -62,11 +66,13 @@ public class CapitaleService {
             capitale.setContoBancario(req.getContoBancario());
             capitale.setLiquidita(req.getLiquidita());
             capitale.setAltriFondi(req.getAltriFondi());
-            capitale.setUser(user);
+            capitale.setUser(userRepository.getReferenceById(utente.userId()));
             capitale.setDataAggiornamento(LocalDate.now());
 
             Capitale saved = capitaleRepository.save(capitale);
-            log.info("✅ Creato nuovo capitale per utente {}: {}", user.getEmail(), saved);
+            lookupCacheService.evictUtente(utente.email());
+            lookupCacheService.evictCapitale(utente.userId());
+            log.info("✅ Creato nuovo capitale per utente {}: {}", utente.email(), saved);
             return new CapitaleResponse(saved);
         } catch (Exception e) {
             log.error("❌ Errore durante la creazione del capitale", e);
@@ -77,13 +83,13 @@ public class CapitaleService {
 
     public CapitaleResponse updateCapitale(String authHeader, CapitaleRequest req) {
         try {
-            User user = getUserFromToken(authHeader);
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
 
             // Cerca il capitale, oppure ne crea uno nuovo se non esiste
-            Capitale cap = capitaleRepository.findByUserId(user.getId())
+            Capitale cap = capitaleRepository.findByUserId(utente.userId())
                     .orElseGet(() -> {
                         Capitale nuovo = new Capitale();
-                        nuovo.setUser(user);
+                        nuovo.setUser(userRepository.getReferenceById(utente.userId()));
                         nuovo.setContoBancario(BigDecimal.ZERO);
                         nuovo.setLiquidita(BigDecimal.ZERO);
                         nuovo.setAltriFondi(BigDecimal.ZERO);
@@ -99,8 +105,12 @@ public class CapitaleService {
 
             // Salva (aggiorna o crea)
             Capitale updated = capitaleRepository.save(cap);
+            if (utente.capitaleId() == null) {
+                lookupCacheService.evictUtente(utente.email());
+            }
+            lookupCacheService.evictCapitale(utente.userId());
 
-            log.info("🔄 Capitale creato/aggiornato per utente {}: {}", user.getEmail(), updated);
+            log.info("🔄 Capitale creato/aggiornato per utente {}: {}", utente.email(), updated);
             return new CapitaleResponse(updated);
 
         } catch (Exception e) {
@@ -112,15 +122,14 @@ public class CapitaleService {
 
     public CapitaleResponse getCapitale(String authHeader) {
         try {
-            User user = getUserFromToken(authHeader);
-            Optional<Capitale> optionalCap = capitaleRepository.findByUserId(user.getId());
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            CapitaleResponse cap = lookupCacheService.findCapitaleByUserId(utente.userId());
 
-            if (optionalCap.isPresent()) {
-                Capitale cap = optionalCap.get();
-                log.info("📥 Recuperato capitale per utente {}: {}", user.getEmail(), cap);
-                return new CapitaleResponse(cap);
+            if (cap != null) {
+                log.info("📥 Recuperato capitale per utente {}: {}", utente.email(), cap);
+                return cap;
             } else {
-                log.info("📥 Nessun capitale trovato per utente {}. Restituisco capitale vuoto.", user.getEmail());
+                log.info("📥 Nessun capitale trovato per utente {}. Restituisco capitale vuoto.", utente.email());
                 return CapitaleResponse.vuoto();
             }
 
@@ -135,9 +144,14 @@ public class CapitaleService {
     @Transactional
     public void deleteCapitale(String authHeader) {
         try {
-            User user = getUserFromToken(authHeader);
-            log.info("🗑 Eliminazione capitale per utente {}", user.getEmail());
-            capitaleRepository.deleteByUserId(user.getId());
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            log.info("🗑 Eliminazione capitale per utente {}", utente.email());
+            capitaleRepository.deleteByUserId(utente.userId());
+            spesaMensileService.azzera(utente.userId());
+            riepilogoMensileService.azzera(utente.userId());
+            snapshotRepository.deleteByUserId(utente.userId());
+            lookupCacheService.evictUtente(utente.email());
+            lookupCacheService.evictCapitale(utente.userId());
         } catch (Exception e) {
             log.error("❌ Errore durante l'eliminazione del capitale", e);
             throw new RuntimeException("Errore nella cancellazione", e);
@@ -147,11 +161,13 @@ public class CapitaleService {
     @Transactional
     public CapitaleResponse resetCapitaleCompleto(String authHeader) {
         try {
-            User user = getUserFromToken(authHeader);
-            Capitale cap = capitaleRepository.findByUserId(user.getId())
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            Capitale cap = capitaleRepository.findByUserId(utente.userId())
                     .orElseThrow(() -> new CapitaleNotFoundException("Capitale non trovato"));
 
             movimentoRepository.deleteByCapitaleId(cap.getId());
+            spesaMensileService.azzera(utente.userId());
+            riepilogoMensileService.azzera(utente.userId());
 
             cap.setContoBancario(BigDecimal.ZERO);
             cap.setLiquidita(BigDecimal.ZERO);
@@ -159,6 +175,7 @@ public class CapitaleService {
             cap.setDataAggiornamento(LocalDate.now());
 
             Capitale reset = capitaleRepository.save(cap);
+            lookupCacheService.evictCapitale(utente.userId());
             log.info("🧨 Reset completo effettuato per capitale {}", reset.getId());
             return new CapitaleResponse(reset);
         } catch (Exception e) {
@@ -170,8 +187,8 @@ public class CapitaleService {
 
     public CapitaleResponse resetCapitale(String authHeader) {
         try {
-            User user = getUserFromToken(authHeader);
-            Capitale cap = capitaleRepository.findByUserId(user.getId())
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            Capitale cap = capitaleRepository.findByUserId(utente.userId())
                     .orElseThrow(() -> new CapitaleNotFoundException("Capitale non trovato"));
 
             cap.setContoBancario(BigDecimal.ZERO);
@@ -180,6 +197,7 @@ public class CapitaleService {
             cap.setDataAggiornamento(LocalDate.now());
 
             Capitale reset = capitaleRepository.save(cap);
+            lookupCacheService.evictCapitale(utente.userId());
             log.info("🔁 Reset parziale effettuato per capitale {}", reset.getId());
             return new CapitaleResponse(reset);
         } catch (Exception e) {
@@ -189,30 +207,18 @@ public class CapitaleService {
     }
 
 
+    // 📊 Un punto per mese negli ultimi MESI_REPORT_MENSILE mesi, letto dagli snapshot dell'utente
     public List<ReportCapitaleDTO> getReportMensile(String authHeader) {
         try {
-            User user = getUserFromToken(authHeader);
-            log.info("📊 Generazione report mensile per utente {}", user.getEmail());
-
-            List<Capitale> capitali = capitaleRepository.findAll().stream()
-                    .filter(c -> c.getUser().getId().equals(user.getId()))
-                    .toList();
-
-            Map<String, List<Capitale>> raggruppatiPerMese = capitali.stream()
-                    .collect(Collectors.groupingBy(
-                            c -> c.getDataAggiornamento().format(DateTimeFormatter.ofPattern("yyyy-MM"))
-                    ));
-
-            List<ReportCapitaleDTO> report = raggruppatiPerMese.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(entry -> {
-                        String periodo = entry.getKey();
-                        BigDecimal sommaTotale = entry.getValue().stream()
-                                .map(Capitale::getTotale)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        return new ReportCapitaleDTO(periodo, sommaTotale, BigDecimal.ZERO);
-                    })
-                    .toList();
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            log.info("📊 Generazione report mensile per utente {}", utente.email());
+
+            LocalDate meseCorrente = LocalDate.now().withDayOfMonth(1);
+            Map<LocalDate, BigDecimal> totali = totaliPerMese(utente, meseCorrente.minusMonths(MESI_REPORT_MENSILE - 1), meseCorrente);
+
+            List<ReportCapitaleDTO> report = conVariazione(totali.entrySet().stream()
+                    .map(e -> Map.entry(e.getKey().format(FORMATO_MESE), e.getValue()))
+                    .toList());
 
             log.info("✅ Report mensile generato con {} periodi", report.size());
             return report;
@@ -223,30 +229,20 @@ public class CapitaleService {
     }
 
 
+    // 📆 Saldo di fine anno (ultimo snapshot disponibile di ogni anno)
     public List<ReportCapitaleDTO> getReportAnnuale(String authHeader) {
         try {
-            User user = getUserFromToken(authHeader);
-            log.info("📆 Generazione report annuale per utente {}", user.getEmail());
-
-            List<Capitale> capitali = capitaleRepository.findAll().stream()
-                    .filter(c -> c.getUser().getId().equals(user.getId()))
-                    .toList();
-
-            Map<String, List<Capitale>> raggruppatiPerAnno = capitali.stream()
-                    .collect(Collectors.groupingBy(
-                            c -> String.valueOf(c.getDataAggiornamento().getYear())
-                    ));
-
-            List<ReportCapitaleDTO> report = raggruppatiPerAnno.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(entry -> {
-                        String periodo = entry.getKey();
-                        BigDecimal sommaTotale = entry.getValue().stream()
-                                .map(Capitale::getTotale)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        return new ReportCapitaleDTO(periodo, sommaTotale, BigDecimal.ZERO);
-                    })
-                    .toList();
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            log.info("📆 Generazione report annuale per utente {}", utente.email());
+
+            LocalDate meseCorrente = LocalDate.now().withDayOfMonth(1);
+            Map<LocalDate, BigDecimal> totali = totaliPerMese(utente, meseCorrente.minusYears(ANNI_REPORT_ANNUALE - 1).withMonth(1), meseCorrente);
+
+            // I mesi sono in ordine: l'ultimo di ogni anno sovrascrive i precedenti
+            Map<String, BigDecimal> finePerAnno = new TreeMap<>();
+            totali.forEach((mese, totale) -> finePerAnno.put(String.valueOf(mese.getYear()), totale));
+
+            List<ReportCapitaleDTO> report = conVariazione(List.copyOf(finePerAnno.entrySet()));
 
             log.info("✅ Report annuale generato con {} anni", report.size());
             return report;
@@ -256,5 +252,30 @@ public class CapitaleService {
         }
     }
 
+    // Snapshot dell'utente nell'intervallo, più il saldo attuale come valore del mese corrente
+    private Map<LocalDate, BigDecimal> totaliPerMese(UtenteAutenticato utente, LocalDate da, LocalDate meseCorrente) {
+        Map<LocalDate, BigDecimal> totali = new TreeMap<>();
+        for (SnapshotCapitale snapshot : snapshotRepository.findByUserIdAndMeseBetweenOrderByMese(utente.userId(), da, meseCorrente)) {
+            totali.put(snapshot.getMese(), snapshot.getTotale());
+        }
+        CapitaleResponse attuale = lookupCacheService.findCapitaleByUserId(utente.userId());
+        if (attuale != null) {
+            totali.put(meseCorrente, attuale.getTotale());
+        }
+        return totali;
+    }
+
+    private static List<ReportCapitaleDTO> conVariazione(List<Map.Entry<String, BigDecimal>> periodi) {
+        List<ReportCapitaleDTO> report = new ArrayList<>(periodi.size());
+        BigDecimal precedente = null;
+        for (Map.Entry<String, BigDecimal> periodo : periodi) {
+            BigDecimal totale = periodo.getValue() != null ? periodo.getValue() : BigDecimal.ZERO;
+            BigDecimal variazione = precedente != null ? totale.subtract(precedente) : BigDecimal.ZERO;
+            report.add(new ReportCapitaleDTO(periodo.getKey(), totale, variazione));
+            precedente = totale;
+        }
+        return report;
+    }
+
 
 }
@@ -3,11 +3,14 @@ package com.myspendr.myspendr.services;
 import com.myspendr.myspendr.exceptions.EmailSendingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+// Creato al primo invio: JavaMailSender e le classi di Jakarta Mail non pesano sull'avvio
+@Lazy
 @Service
 public class EmailService {
 
@@ -0,0 +1,116 @@
+package com.myspendr.myspendr.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myspendr.myspendr.dto.MovimentoResponse;
+import com.myspendr.myspendr.exceptions.CapitaleNotFoundException;
+import com.myspendr.myspendr.model.Movimento;
+import com.myspendr.myspendr.repositories.MovimentoRepository;
+import com.myspendr.myspendr.security.UtenteAutenticatoResolver;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class ExportMovimentiService {
+
+    public enum Formato {
+        CSV,
+        NDJSON
+    }
+
+    private static final String INTESTAZIONE_CSV = "id,data,tipo,categoria,fonte,importo,descrizione";
+
+    private final MovimentoRepository movimentoRepository;
+    private final UtenteAutenticatoResolver utenteResolver;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    public ExportMovimentiService(MovimentoRepository movimentoRepository,
+                                  UtenteAutenticatoResolver utenteResolver,
+                                  ObjectMapper objectMapper,
+                                  EntityManager entityManager) {
+        this.movimentoRepository = movimentoRepository;
+        this.utenteResolver = utenteResolver;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+    }
+
+    public Long getCapitaleIdFromToken(String authHeader) {
+        Long capitaleId = utenteResolver.risolvi(authHeader).capitaleId();
+        if (capitaleId == null) {
+            throw new CapitaleNotFoundException("Capitale non trovato");
+        }
+        return capitaleId;
+    }
+
+    // Scrive i movimenti riga per riga: nessuna lista intermedia, le entità vengono staccate appena scritte
+    @Transactional(readOnly = true)
+    public long esporta(Long capitaleId, Formato formato, OutputStream out) throws IOException {
+        long inizio = System.nanoTime();
+        long righe = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (formato == Formato.CSV) {
+            writer.write(INTESTAZIONE_CSV);
+            writer.write('\n');
+        }
+
+        try (Stream<Movimento> movimenti = movimentoRepository.streamByCapitaleId(capitaleId)) {
+            Iterator<Movimento> it = movimenti.iterator();
+            while (it.hasNext()) {
+                Movimento movimento = it.next();
+                if (formato == Formato.CSV) {
+                    scriviCsv(writer, movimento);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(new MovimentoResponse(movimento)));
+                    writer.write('\n');
+                }
+                entityManager.detach(movimento);
+                righe++;
+            }
+        }
+        writer.flush();
+
+        long millis = (System.nanoTime() - inizio) / 1_000_000;
+        log.info("📤 Export {} completato per capitale {}: {} righe in {} ms", formato, capitaleId, righe, millis);
+        return righe;
+    }
+
+    private void scriviCsv(Writer writer, Movimento m) throws IOException {
+        writer.write(String.valueOf(m.getId()));
+        writer.write(',');
+        writer.write(m.getData() != null ? m.getData().toString() : "");
+        writer.write(',');
+        writer.write(m.getTipo() != null ? m.getTipo().name() : "");
+        writer.write(',');
+        writer.write(m.getCategoria() != null ? m.getCategoria().name() : "");
+        writer.write(',');
+        writer.write(campoCsv(m.getFonte()));
+        writer.write(',');
+        writer.write(m.getImporto() != null ? m.getImporto().toPlainString() : "");
+        writer.write(',');
+        writer.write(campoCsv(m.getDescrizione()));
+        writer.write('\n');
+    }
+
+    private static String campoCsv(String valore) {
+        if (valore == null) {
+            return "";
+        }
+        if (valore.indexOf(',') >= 0 || valore.indexOf('"') >= 0 || valore.indexOf('\n') >= 0 || valore.indexOf('\r') >= 0) {
+            return "\"" + valore.replace("\"", "\"\"") + "\"";
+        }
+        return valore;
+    }
+}
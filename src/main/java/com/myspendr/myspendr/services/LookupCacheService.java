@@ -0,0 +1,81 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.config.CacheConfig;
+import com.myspendr.myspendr.dto.CapitaleResponse;
+import com.myspendr.myspendr.repositories.CapitaleRepository;
+import com.myspendr.myspendr.repositories.UserRepository;
+import com.myspendr.myspendr.security.RevocaTokenStore;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class LookupCacheService {
+
+    private final UserRepository userRepository;
+    private final CapitaleRepository capitaleRepository;
+    private final CacheManager cacheManager;
+    private final RevocaTokenStore revocaTokenStore;
+
+    public LookupCacheService(UserRepository userRepository, CapitaleRepository capitaleRepository, CacheManager cacheManager,
+                              RevocaTokenStore revocaTokenStore) {
+        this.userRepository = userRepository;
+        this.capitaleRepository = capitaleRepository;
+        this.cacheManager = cacheManager;
+        this.revocaTokenStore = revocaTokenStore;
+    }
+
+    // Restituisce null se l'utente non esiste (i null non vengono messi in cache)
+    @Cacheable(cacheNames = CacheConfig.UTENTI, key = "#email", unless = "#result == null")
+    public UtenteAutenticato findUtenteByEmail(String email) {
+        return userRepository.findByEmail(email)
+                .map(UtenteAutenticato::from)
+                .orElse(null);
+    }
+
+    // Snapshot in sola lettura dei saldi: chi deve modificarli usa il repository
+    @Cacheable(cacheNames = CacheConfig.CAPITALI, key = "#userId", unless = "#result == null")
+    public CapitaleResponse findCapitaleByUserId(UUID userId) {
+        return capitaleRepository.findByUserId(userId)
+                .map(CapitaleResponse::new)
+                .orElse(null);
+    }
+
+    // Anche i claims uid/cid dei token già emessi non sono più affidabili
+    public void evictUtente(String email) {
+        evict(CacheConfig.UTENTI, email);
+        if (email != null) {
+            revocaTokenStore.segnaClaimsObsoleti(email);
+        }
+    }
+
+    public void evictCapitale(UUID userId) {
+        evict(CacheConfig.CAPITALI, userId);
+    }
+
+    // Invalida subito e di nuovo dopo il commit, così una lettura concorrente non rimette in cache il valore vecchio
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null || key == null) {
+            return;
+        }
+        cache.evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(key);
+                }
+            });
+        }
+        log.debug("🧹 Cache {} invalidata per {}", cacheName, key);
+    }
+}
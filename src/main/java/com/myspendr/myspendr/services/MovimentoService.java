@@ -1,71 +1,133 @@
 package com.myspendr.myspendr.services;
 
+import com.myspendr.myspendr.dto.ImportMovimentiResponse;
 import com.myspendr.myspendr.dto.MovimentoRequest;
 import com.myspendr.myspendr.dto.MovimentoResponse;
+import com.myspendr.myspendr.dto.PaginaMovimentiResponse;
+import com.myspendr.myspendr.dto.TotaliMovimentiResponse;
+import com.myspendr.myspendr.dto.TotaliPerTipo;
 import com.myspendr.myspendr.exceptions.CapitaleNotFoundException;
-import com.myspendr.myspendr.exceptions.UserNotFoundException;
 import com.myspendr.myspendr.model.Capitale;
+import com.myspendr.myspendr.model.CategoriaMovimento;
 import com.myspendr.myspendr.model.Movimento;
 import com.myspendr.myspendr.model.TipoMovimento;
 import com.myspendr.myspendr.model.User;
 import com.myspendr.myspendr.repositories.CapitaleRepository;
 import com.myspendr.myspendr.repositories.MovimentoRepository;
 import com.myspendr.myspendr.repositories.UserRepository;
-import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import com.myspendr.myspendr.security.UtenteAutenticatoResolver;
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@Timed("myspendr.service")
 public class MovimentoService {
 
     private final CapitaleRepository capitaleRepository;
     private final MovimentoRepository movimentoRepository;
-    private final JwtUtils jwtUtils;
+    private final UtenteAutenticatoResolver utenteResolver;
     private final UserRepository userRepository;
-    private final BudgetService budgetService;
+    private final JdbcTemplate jdbcTemplate;
+    private final LookupCacheService lookupCacheService;
+    private final SpesaMensileService spesaMensileService;
+    private final RiepilogoMensileService riepilogoMensileService;
+
+    private static final Set<String> FONTI_VALIDE = Set.of("BANCA", "CONTANTI", "ALTRI");
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_IMPORT_SIZE = 20_000;
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final String INSERT_MOVIMENTO =
+            "INSERT INTO movimenti (importo, tipo, categoria, descrizione, data, fonte, capitale_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final LocalDate DATA_MINIMA = LocalDate.of(1900, 1, 1);
+    private static final LocalDate DATA_MASSIMA = LocalDate.of(9999, 12, 31);
+
+    private record MovimentiDelMese(TipoMovimento tipo, CategoriaMovimento categoria, LocalDate mese) {
+    }
 
     public MovimentoService(CapitaleRepository capitaleRepository,
                             MovimentoRepository movimentoRepository,
-                            JwtUtils jwtUtils,
+                            UtenteAutenticatoResolver utenteResolver,
                             UserRepository userRepository,
-                            BudgetService budgetService) {
+                            JdbcTemplate jdbcTemplate,
+                            LookupCacheService lookupCacheService,
+                            SpesaMensileService spesaMensileService,
+                            RiepilogoMensileService riepilogoMensileService) {
         this.capitaleRepository = capitaleRepository;
         this.movimentoRepository = movimentoRepository;
-        this.jwtUtils = jwtUtils;
+        this.utenteResolver = utenteResolver;
         this.userRepository = userRepository;
-        this.budgetService = budgetService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lookupCacheService = lookupCacheService;
+        this.spesaMensileService = spesaMensileService;
+        this.riepilogoMensileService = riepilogoMensileService;
     }
 
     private Capitale getCapitaleFromToken(String authHeader) {
-        String email = jwtUtils.getUsernameFromJwtToken(authHeader.replace("Bearer ", "").trim());
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UserNotFoundException("Utente non trovato"));
-        return capitaleRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new CapitaleNotFoundException("Capitale non trovato"));
+        UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+        if (utente.capitaleId() == null) {
+            throw new CapitaleNotFoundException("Capitale non trovato");
+        }
+        return capitaleRepository.getReferenceById(utente.capitaleId());
+    }
+
+    private Capitale getOCreaCapitale(UtenteAutenticato utente, User user) {
+        if (utente.capitaleId() != null) {
+            return capitaleRepository.getReferenceById(utente.capitaleId());
+        }
+        return capitaleRepository.findByUserId(utente.userId())
+                .orElseGet(() -> {
+                    Capitale nuovo = new Capitale();
+                    nuovo.setUser(user);
+                    nuovo.setContoBancario(BigDecimal.ZERO);
+                    nuovo.setLiquidita(BigDecimal.ZERO);
+                    nuovo.setAltriFondi(BigDecimal.ZERO);
+                    nuovo.setDataAggiornamento(LocalDate.now());
+                    lookupCacheService.evictUtente(utente.email());
+                    return capitaleRepository.save(nuovo);
+                });
+    }
+
+    // 💰 Applica la variazione al saldo della fonte con un UPDATE atomico:
+    // inserimenti concorrenti (app e bot) non si sovrascrivono più a vicenda
+    private void aggiornaSaldo(Long capitaleId, TipoMovimento tipo, String fonte, BigDecimal importo) {
+        applicaVariazione(capitaleId, VariazioneSaldo.di(tipo, fonte, importo));
+    }
+
+    private void applicaVariazione(Long capitaleId, VariazioneSaldo variazione) {
+        capitaleRepository.applicaVariazione(capitaleId, variazione.banca(), variazione.contanti(), variazione.altri());
+    }
+
+    // 📊 Contatori di spesa (budget) e rollup mensili, nella stessa transazione del movimento
+    private void aggiornaContatori(UUID userId, TipoMovimento tipo, CategoriaMovimento categoria, LocalDate data,
+                                   BigDecimal importo, int numero) {
+        spesaMensileService.registra(userId, tipo, categoria, data, importo);
+        riepilogoMensileService.registra(userId, tipo, categoria, data, importo, numero);
     }
 
+    @Transactional
     public MovimentoResponse creaMovimento(String authHeader, MovimentoRequest request) {
         try {
-            String email = jwtUtils.getUsernameFromJwtToken(authHeader.replace("Bearer ", "").trim());
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new UserNotFoundException("Utente non trovato"));
-
-            Capitale capitale = capitaleRepository.findByUserId(user.getId())
-                    .orElseGet(() -> {
-                        Capitale nuovo = new Capitale();
-                        nuovo.setUser(user);
-                        nuovo.setContoBancario(BigDecimal.ZERO);
-                        nuovo.setLiquidita(BigDecimal.ZERO);
-                        nuovo.setAltriFondi(BigDecimal.ZERO);
-                        nuovo.setDataAggiornamento(LocalDate.now());
-                        return capitaleRepository.save(nuovo);
-                    });
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            User user = userRepository.getReferenceById(utente.userId());
+            Capitale capitale = getOCreaCapitale(utente, user);
 
             log.info("▶️ Creazione movimento: categoria={}, tipo={}, fonte={}, importo={}, data={}, descrizione={}",
                     request.getCategoria(), request.getTipo(), request.getFonte(),
@@ -73,7 +135,7 @@ public class MovimentoService {
 
             BigDecimal importo = request.getImporto();
             String fonte = request.getFonte();
-            log.info("🔐 Recupero capitale per utente {}", email);
+            log.info("🔐 Recupero capitale per utente {}", utente.email());
 
             if (fonte == null) {
                 throw new IllegalArgumentException("Fonte obbligatoria per il movimento");
@@ -89,36 +151,12 @@ public class MovimentoService {
                     .capitale(capitale)
                     .build();
 
-            switch (request.getTipo()) {
-                case ENTRATA -> {
-                    switch (fonte.toUpperCase()) {
-                        case "BANCA" -> capitale.setContoBancario(capitale.getContoBancario().add(importo));
-                        case "CONTANTI" -> capitale.setLiquidita(capitale.getLiquidita().add(importo));
-                        case "ALTRI" -> capitale.setAltriFondi(capitale.getAltriFondi().add(importo));
-                        default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
-                    }
-                }
-                case USCITA -> {
-                    switch (fonte.toUpperCase()) {
-                        case "BANCA" -> capitale.setContoBancario(capitale.getContoBancario().subtract(importo));
-                        case "CONTANTI" -> capitale.setLiquidita(capitale.getLiquidita().subtract(importo));
-                        case "ALTRI" -> capitale.setAltriFondi(capitale.getAltriFondi().subtract(importo));
-                        default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
-                    }
-                }
-                default -> throw new IllegalArgumentException("Tipo di movimento non valido: " + request.getTipo());
-            }
-
-            capitaleRepository.save(capitale);
+            aggiornaSaldo(capitale.getId(), request.getTipo(), fonte, importo);
+            lookupCacheService.evictCapitale(utente.userId());
             Movimento saved = movimentoRepository.save(movimento);
+            aggiornaContatori(utente.userId(), saved.getTipo(), saved.getCategoria(), saved.getData(), importo, 1);
             log.info("✅ Movimento {} [{}] salvato per capitale {}", saved.getTipo(), saved.getFonte(), capitale.getId());
 
-            // 🔔 Controllo budget superato per USCITE
-            if (request.getTipo() == TipoMovimento.USCITA) {
-                budgetService.controllaSuperamentoEBotta(user, request.getCategoria(), request.getData());
-            }
-
-
             return new MovimentoResponse(saved);
 
         } catch (IllegalArgumentException e) {
@@ -131,6 +169,82 @@ public class MovimentoService {
     }
 
 
+    // 📥 Import massivo (es. estratto conto): validazione in un passaggio, insert in batch JDBC,
+    // saldi aggiornati con un solo UPDATE
+    @Transactional
+    public ImportMovimentiResponse importaMovimenti(String authHeader, List<MovimentoRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Nessun movimento da importare");
+        }
+        if (requests.size() > MAX_IMPORT_SIZE) {
+            throw new IllegalArgumentException("Troppi movimenti in un solo import (max " + MAX_IMPORT_SIZE + ")");
+        }
+
+        List<String> errori = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            MovimentoRequest r = requests.get(i);
+            if (r == null) {
+                errori.add("riga " + (i + 1) + ": movimento vuoto");
+            } else if (r.getImporto() == null || r.getTipo() == null || r.getCategoria() == null
+                    || r.getData() == null || r.getFonte() == null) {
+                errori.add("riga " + (i + 1) + ": campi obbligatori mancanti");
+            } else if (!FONTI_VALIDE.contains(r.getFonte().toUpperCase())) {
+                errori.add("riga " + (i + 1) + ": fonte non valida " + r.getFonte());
+            }
+        }
+        if (!errori.isEmpty()) {
+            throw new IllegalArgumentException("Import non valido: " + String.join("; ", errori));
+        }
+
+        try {
+            UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+            User user = userRepository.getReferenceById(utente.userId());
+            Capitale capitale = getOCreaCapitale(utente, user);
+
+            jdbcTemplate.batchUpdate(INSERT_MOVIMENTO, requests, IMPORT_BATCH_SIZE, (ps, r) -> {
+                ps.setBigDecimal(1, r.getImporto());
+                ps.setString(2, r.getTipo().name());
+                ps.setString(3, r.getCategoria().name());
+                ps.setString(4, r.getDescrizione());
+                ps.setDate(5, Date.valueOf(r.getData()));
+                ps.setString(6, r.getFonte().toUpperCase());
+                ps.setLong(7, capitale.getId());
+            });
+
+            BigDecimal totaleEntrate = BigDecimal.ZERO;
+            BigDecimal totaleUscite = BigDecimal.ZERO;
+            // Movimenti dell'import raggruppati per tipo, categoria e mese: un upsert per contatore
+            Map<MovimentiDelMese, BigDecimal> totaliPerMese = new LinkedHashMap<>();
+            Map<MovimentiDelMese, Integer> numeroPerMese = new LinkedHashMap<>();
+
+            VariazioneSaldo variazione = VariazioneSaldo.NESSUNA;
+
+            for (MovimentoRequest r : requests) {
+                variazione = variazione.piu(VariazioneSaldo.di(r.getTipo(), r.getFonte(), r.getImporto()));
+                if (r.getTipo() == TipoMovimento.ENTRATA) {
+                    totaleEntrate = totaleEntrate.add(r.getImporto());
+                } else {
+                    totaleUscite = totaleUscite.add(r.getImporto());
+                }
+                MovimentiDelMese chiave = new MovimentiDelMese(r.getTipo(), r.getCategoria(), r.getData().withDayOfMonth(1));
+                totaliPerMese.merge(chiave, r.getImporto(), BigDecimal::add);
+                numeroPerMese.merge(chiave, 1, Integer::sum);
+            }
+
+            applicaVariazione(capitale.getId(), variazione);
+            lookupCacheService.evictCapitale(utente.userId());
+            totaliPerMese.forEach((m, totale) ->
+                    aggiornaContatori(utente.userId(), m.tipo(), m.categoria(), m.mese(), totale, numeroPerMese.get(m)));
+            log.info("📥 Importati {} movimenti per capitale {} (entrate={}€, uscite={}€)",
+                    requests.size(), capitale.getId(), totaleEntrate, totaleUscite);
+            return new ImportMovimentiResponse(requests.size(), totaleEntrate, totaleUscite);
+
+        } catch (Exception e) {
+            log.error("💥 Errore durante l'import dei movimenti", e);
+            throw new RuntimeException("Errore durante l'import dei movimenti", e);
+        }
+    }
+
     public List<MovimentoResponse> getMovimentiByUser(String authHeader) {
         try {
             Capitale capitale = getCapitaleFromToken(authHeader);
@@ -145,6 +259,39 @@ public class MovimentoService {
         }
     }
 
+    public PaginaMovimentiResponse getPaginaMovimenti(String authHeader, LocalDate start, LocalDate end,
+                                                      LocalDate cursorData, Long cursorId, int size) {
+        try {
+            Capitale capitale = getCapitaleFromToken(authHeader);
+            int dimensione = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            LocalDate inizio = start != null ? start : DATA_MINIMA;
+            LocalDate fine = end != null ? end : DATA_MASSIMA;
+
+            // Ne chiedo uno in più per sapere se esiste una pagina successiva
+            Pageable limite = PageRequest.of(0, dimensione + 1);
+            List<Movimento> risultati = (cursorData != null && cursorId != null)
+                    ? movimentoRepository.findPaginaDopo(capitale.getId(), inizio, fine, cursorData, cursorId, limite)
+                    : movimentoRepository.findPrimaPagina(capitale.getId(), inizio, fine, limite);
+
+            boolean hasNext = risultati.size() > dimensione;
+            List<Movimento> pagina = hasNext ? risultati.subList(0, dimensione) : risultati;
+            Movimento ultimo = hasNext ? pagina.get(pagina.size() - 1) : null;
+
+            log.info("📄 Pagina di {} movimenti per capitale ID={} (hasNext={})", pagina.size(), capitale.getId(), hasNext);
+
+            return PaginaMovimentiResponse.builder()
+                    .movimenti(pagina.stream().map(MovimentoResponse::new).toList())
+                    .hasNext(hasNext)
+                    .nextCursorData(ultimo != null ? ultimo.getData() : null)
+                    .nextCursorId(ultimo != null ? ultimo.getId() : null)
+                    .build();
+        } catch (Exception e) {
+            log.error("❌ Errore nel recupero della pagina di movimenti", e);
+            throw new RuntimeException("Errore nel recupero della pagina di movimenti", e);
+        }
+    }
+
+    @Transactional
     public void eliminaMovimento(Long id) {
         try {
             Movimento movimento = movimentoRepository.findById(id)
@@ -156,27 +303,12 @@ public class MovimentoService {
 
             log.info("🗑 Eliminazione movimento ID={} - Tipo: {}, Fonte: {}, Importo: {}", id, movimento.getTipo(), fonte, importo);
 
-            switch (movimento.getTipo()) {
-                case ENTRATA -> {
-                    switch (fonte) {
-                        case "BANCA" -> capitale.setContoBancario(capitale.getContoBancario().subtract(importo));
-                        case "CONTANTI" -> capitale.setLiquidita(capitale.getLiquidita().subtract(importo));
-                        case "ALTRI" -> capitale.setAltriFondi(capitale.getAltriFondi().subtract(importo));
-                        default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
-                    }
-                }
-                case USCITA -> {
-                    switch (fonte) {
-                        case "BANCA" -> capitale.setContoBancario(capitale.getContoBancario().add(importo));
-                        case "CONTANTI" -> capitale.setLiquidita(capitale.getLiquidita().add(importo));
-                        case "ALTRI" -> capitale.setAltriFondi(capitale.getAltriFondi().add(importo));
-                        default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
-                    }
-                }
-            }
-
-            capitaleRepository.save(capitale);
+            // Storno: stessa variazione del movimento originale, con segno opposto
+            aggiornaSaldo(capitale.getId(), movimento.getTipo(), fonte, importo.negate());
+            lookupCacheService.evictCapitale(capitale.getUser().getId());
             movimentoRepository.deleteById(id);
+            aggiornaContatori(capitale.getUser().getId(), movimento.getTipo(), movimento.getCategoria(),
+                    movimento.getData(), importo.negate(), -1);
             log.info("✅ Movimento eliminato e capitale aggiornato (ID: {})", id);
         } catch (Exception e) {
             log.error("❌ Errore durante l'eliminazione del movimento ID={}", id, e);
@@ -190,8 +322,7 @@ public class MovimentoService {
             Capitale capitale = getCapitaleFromToken(authHeader);
             log.info("📅 Filtro movimenti tra {} e {} per capitale ID={}", start, end, capitale.getId());
 
-            return movimentoRepository.findByCapitaleId(capitale.getId()).stream()
-                    .filter(m -> !m.getData().isBefore(start) && !m.getData().isAfter(end))
+            return movimentoRepository.findByCapitaleIdAndDataBetween(capitale.getId(), start, end).stream()
                     .map(MovimentoResponse::new)
                     .collect(Collectors.toList());
         } catch (Exception e) {
@@ -205,10 +336,7 @@ public class MovimentoService {
         try {
             Capitale capitale = getCapitaleFromToken(authHeader);
 
-            BigDecimal totale = movimentoRepository.findByCapitaleId(capitale.getId()).stream()
-                    .filter(m -> m.getTipo() == TipoMovimento.ENTRATA)
-                    .map(Movimento::getImporto)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totale = movimentoRepository.sommaImporti(capitale.getId(), TipoMovimento.ENTRATA);
 
             log.info("📊 Totale ENTRATE per capitale {}: {}€", capitale.getId(), totale);
             return totale;
@@ -226,10 +354,7 @@ public class MovimentoService {
     public BigDecimal getTotaleUscite(String authHeader) {
         try {
             Capitale capitale = getCapitaleFromToken(authHeader);
-            BigDecimal totale = movimentoRepository.findByCapitaleId(capitale.getId()).stream()
-                    .filter(m -> m.getTipo() == TipoMovimento.USCITA)
-                    .map(Movimento::getImporto)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totale = movimentoRepository.sommaImporti(capitale.getId(), TipoMovimento.USCITA);
 
             log.info("📉 Totale USCITE per capitale {}: {}€", capitale.getId(), totale);
             return totale;
@@ -239,6 +364,7 @@ public class MovimentoService {
         }
     }
 
+    @Transactional
     public MovimentoResponse creaMovimentoDaTelegram(User user, MovimentoRequest request) {
         try {
             Capitale capitale = capitaleRepository.findByUserId(user.getId())
@@ -249,6 +375,7 @@ public class MovimentoService {
                         nuovo.setLiquidita(BigDecimal.ZERO);
                         nuovo.setAltriFondi(BigDecimal.ZERO);
                         nuovo.setDataAggiornamento(LocalDate.now());
+                        lookupCacheService.evictUtente(user.getEmail());
                         return capitaleRepository.save(nuovo);
                     });
 
@@ -265,28 +392,10 @@ public class MovimentoService {
                     .capitale(capitale)
                     .build();
 
-            switch (request.getTipo()) {
-                case ENTRATA -> {
-                    switch (fonte.toUpperCase()) {
-                        case "BANCA" -> capitale.setContoBancario(capitale.getContoBancario().add(importo));
-                        case "CONTANTI" -> capitale.setLiquidita(capitale.getLiquidita().add(importo));
-                        case "ALTRI" -> capitale.setAltriFondi(capitale.getAltriFondi().add(importo));
-                        default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
-                    }
-                }
-                case USCITA -> {
-                    switch (fonte.toUpperCase()) {
-                        case "BANCA" -> capitale.setContoBancario(capitale.getContoBancario().subtract(importo));
-                        case "CONTANTI" -> capitale.setLiquidita(capitale.getLiquidita().subtract(importo));
-                        case "ALTRI" -> capitale.setAltriFondi(capitale.getAltriFondi().subtract(importo));
-                        default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
-                    }
-                }
-                default -> throw new IllegalArgumentException("Tipo di movimento non valido: " + request.getTipo());
-            }
-
-            capitaleRepository.save(capitale);
+            aggiornaSaldo(capitale.getId(), request.getTipo(), fonte, importo);
+            lookupCacheService.evictCapitale(user.getId());
             Movimento saved = movimentoRepository.save(movimento);
+            aggiornaContatori(user.getId(), saved.getTipo(), saved.getCategoria(), saved.getData(), importo, 1);
 
             log.info("✅ Movimento {} [{}] salvato per capitale {}", saved.getTipo(), saved.getFonte(), capitale.getId());
 
@@ -303,11 +412,7 @@ public class MovimentoService {
             LocalDate oggi = LocalDate.now();
             LocalDate meseScorso = oggi.minusMonths(1);
 
-            BigDecimal totale = movimentoRepository.findByCapitaleId(capitale.getId()).stream()
-                    .filter(m -> m.getTipo() == TipoMovimento.ENTRATA)
-                    .filter(m -> !m.getData().isBefore(meseScorso) && !m.getData().isAfter(oggi))
-                    .map(Movimento::getImporto)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totale = movimentoRepository.sommaImportiTraDate(capitale.getId(), TipoMovimento.ENTRATA, meseScorso, oggi);
 
             log.info("📈 Totale ENTRATE ultimo mese per capitale {}: {}€", capitale.getId(), totale);
             return totale;
@@ -327,11 +432,7 @@ public class MovimentoService {
             LocalDate oggi = LocalDate.now();
             LocalDate meseScorso = oggi.minusMonths(1);
 
-            BigDecimal totale = movimentoRepository.findByCapitaleId(capitale.getId()).stream()
-                    .filter(m -> m.getTipo() == TipoMovimento.USCITA)
-                    .filter(m -> !m.getData().isBefore(meseScorso) && !m.getData().isAfter(oggi))
-                    .map(Movimento::getImporto)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totale = movimentoRepository.sommaImportiTraDate(capitale.getId(), TipoMovimento.USCITA, meseScorso, oggi);
 
             log.info("📉 Totale USCITE ultimo mese per capitale {}: {}€", capitale.getId(), totale);
             return totale;
@@ -345,6 +446,37 @@ public class MovimentoService {
         }
     }
 
+    public TotaliMovimentiResponse getTotali(String authHeader) {
+        try {
+            Capitale capitale = getCapitaleFromToken(authHeader);
+            LocalDate oggi = LocalDate.now();
+            LocalDate meseScorso = oggi.minusMonths(1);
+
+            TotaliMovimentiResponse totali = TotaliMovimentiResponse.vuoto();
+            for (TotaliPerTipo riga : movimentoRepository.totaliPerTipo(capitale.getId(), meseScorso, oggi)) {
+                switch (riga.getTipo()) {
+                    case ENTRATA -> {
+                        totali.setTotaleEntrate(riga.getTotale());
+                        totali.setTotaleEntrateUltimoMese(riga.getTotalePeriodo());
+                    }
+                    case USCITA -> {
+                        totali.setTotaleUscite(riga.getTotale());
+                        totali.setTotaleUsciteUltimoMese(riga.getTotalePeriodo());
+                    }
+                }
+            }
+
+            log.info("📊 Totali per capitale {}: entrate={}€, uscite={}€", capitale.getId(),
+                    totali.getTotaleEntrate(), totali.getTotaleUscite());
+            return totali;
 
+        } catch (CapitaleNotFoundException e) {
+            log.info("ℹ️ Capitale non presente: ritorno totali a 0€.");
+            return TotaliMovimentiResponse.vuoto();
+        } catch (Exception e) {
+            log.error("❌ Errore nel calcolo dei totali", e);
+            throw new RuntimeException("Errore nel calcolo dei totali", e);
+        }
+    }
 
 }
@@ -0,0 +1,138 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.dto.TokenResponse;
+import com.myspendr.myspendr.exceptions.InvalidCredentialsException;
+import com.myspendr.myspendr.model.RefreshToken;
+import com.myspendr.myspendr.model.User;
+import com.myspendr.myspendr.repositories.RefreshTokenRepository;
+import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+// Sessioni lunghe senza rifare il login: il rinnovo costa una lookup indicizzata e una firma HMAC, niente BCrypt
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtUtils jwtUtils;
+    private final LookupCacheService lookupCacheService;
+    private final MeterRegistry meterRegistry;
+    private final SecretKeySpec chiave;
+    private final long durataGiorni;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               JwtUtils jwtUtils,
+                               LookupCacheService lookupCacheService,
+                               MeterRegistry meterRegistry,
+                               @Value("${jwt.refresh.secret:${jwt.secret}}") String segreto,
+                               @Value("${jwt.refresh.expiration-days:30}") long durataGiorni) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtUtils = jwtUtils;
+        this.lookupCacheService = lookupCacheService;
+        this.meterRegistry = meterRegistry;
+        this.chiave = new SecretKeySpec(segreto.getBytes(StandardCharsets.UTF_8), ALGORITMO);
+        this.durataGiorni = durataGiorni;
+    }
+
+    // 🆕 Nuova famiglia di token, al login
+    @Transactional
+    public String emetti(User user) {
+        return salvaNuovo(user, UUID.randomUUID());
+    }
+
+    // 🔁 Ruota il refresh token e firma un nuovo access token
+    @Transactional(dontRollbackOn = InvalidCredentialsException.class)
+    public TokenResponse rinnova(String refreshToken) {
+        RefreshToken corrente = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .orElseThrow(() -> new InvalidCredentialsException("Sessione non valida, effettua di nuovo il login."));
+
+        if (corrente.isRevocato() || corrente.isUsato() || refreshTokenRepository.marcaUsato(corrente.getId()) == 0) {
+            // Un token già ruotato è stato ripresentato: qualcuno ne ha una copia, chiudo tutta la sessione
+            int revocati = refreshTokenRepository.revocaFamiglia(corrente.getFamiglia());
+            meterRegistry.counter("myspendr.refresh.reuse").increment();
+            log.warn("🚨 Riuso di refresh token per {}: revocati {} token della famiglia {}",
+                    corrente.getUser().getEmail(), revocati, corrente.getFamiglia());
+            throw new InvalidCredentialsException("Sessione non valida, effettua di nuovo il login.");
+        }
+        if (corrente.getScadenza().isBefore(LocalDateTime.now())) {
+            throw new InvalidCredentialsException("Sessione scaduta, effettua di nuovo il login.");
+        }
+
+        User user = corrente.getUser();
+        String nuovo = salvaNuovo(user, corrente.getFamiglia());
+        // Claims dalla cache utenti: il rinnovo riporta nel token un eventuale capitale creato nel frattempo
+        UtenteAutenticato utente = lookupCacheService.findUtenteByEmail(user.getEmail());
+        String accessToken = utente != null ? jwtUtils.generateJwtToken(utente) : jwtUtils.generateJwtToken(user.getEmail());
+        return new TokenResponse(accessToken, nuovo);
+    }
+
+    // 🚪 Logout: revoca la sessione a cui appartiene il token
+    @Transactional
+    public void revoca(String refreshToken) {
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.revocaFamiglia(token.getFamiglia()));
+    }
+
+    // 🔐 Cambio o reset password: chiude tutte le sessioni dell'utente
+    @Transactional
+    public void revocaTutti(UUID userId) {
+        int revocati = refreshTokenRepository.revocaPerUtente(userId);
+        log.info("🔐 Revocati {} refresh token per utente {}", revocati, userId);
+    }
+
+    // 🧹 Le righe scadute non servono più nemmeno per rilevare un riuso
+    @Scheduled(cron = "${jwt.refresh.pulizia-cron:0 15 4 * * *}")
+    @Transactional
+    public void eliminaScaduti() {
+        int eliminati = refreshTokenRepository.eliminaScaduti(LocalDateTime.now());
+        if (eliminati > 0) {
+            log.info("🧹 Eliminati {} refresh token scaduti", eliminati);
+        }
+    }
+
+    private String salvaNuovo(User user, UUID famiglia) {
+        byte[] valore = new byte[32];
+        random.nextBytes(valore);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(valore);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .famiglia(famiglia)
+                .user(user)
+                .scadenza(LocalDateTime.now().plusDays(durataGiorni))
+                .build());
+        return token;
+    }
+
+    private String hash(String token) {
+        if (token == null || token.isBlank()) {
+            throw new InvalidCredentialsException("Refresh token mancante");
+        }
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chiave);
+            return HexFormat.of().formatHex(mac.doFinal(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC non disponibile", e);
+        }
+    }
+}
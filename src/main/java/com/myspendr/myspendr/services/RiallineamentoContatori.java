@@ -0,0 +1,36 @@
+package com.myspendr.myspendr.services;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.function.IntSupplier;
+
+// Riallineamento dei contatori mensili derivati dai movimenti, condiviso da spesa e riepilogo mensile.
+// Il ricalcolo non svuota la tabella: applica come incremento solo la differenza tra movimenti e contatore,
+// così gli aggiornamenti in corso non vengono né bloccati né sovrascritti.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RiallineamentoContatori {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Un solo nodo alla volta per contatore: gli altri trovano il lock occupato e saltano il giro,
+    // altrimenti la stessa correzione verrebbe applicata due volte
+    @Transactional
+    public void riallinea(String contatore, IntSupplier correggiDaMovimenti, IntSupplier eliminaVuoti) {
+        Boolean lock = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, contatore);
+        if (!Boolean.TRUE.equals(lock)) {
+            log.info("⏭️ Riallineamento di {} già in corso su un altro nodo", contatore);
+            return;
+        }
+        long inizio = System.nanoTime();
+        int corrette = correggiDaMovimenti.getAsInt();
+        int eliminate = eliminaVuoti.getAsInt();
+        log.info("🔁 Riallineamento di {}: {} righe corrette, {} eliminate in {} ms",
+                contatore, corrette, eliminate, (System.nanoTime() - inizio) / 1_000_000);
+    }
+}
@@ -0,0 +1,106 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.dto.RiepilogoMeseResponse;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.RiepilogoMensile;
+import com.myspendr.myspendr.model.TipoMovimento;
+import com.myspendr.myspendr.repositories.RiepilogoMensileRepository;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import com.myspendr.myspendr.security.UtenteAutenticatoResolver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Rollup mensili di entrate e uscite, aggiornati insieme ai movimenti: la dashboard non riaggrega più i movimenti
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RiepilogoMensileService {
+
+    private static final int MAX_MESI = 120;
+
+    private final RiepilogoMensileRepository riepilogoRepository;
+    private final UtenteAutenticatoResolver utenteResolver;
+    private final RiallineamentoContatori riallineamento;
+
+    // Va chiamato nella stessa transazione del movimento: importo e numero negativi per gli storni
+    public void registra(UUID userId, TipoMovimento tipo, CategoriaMovimento categoria, LocalDate data,
+                         BigDecimal importo, int numero) {
+        if (tipo == null || data == null || importo == null) {
+            return;
+        }
+        CategoriaMovimento cat = categoria != null ? categoria : CategoriaMovimento.ALTRO;
+        riepilogoRepository.incrementa(userId, data.getYear(), data.getMonthValue(), tipo.name(), cat.name(), importo, numero);
+    }
+
+    public void azzera(UUID userId) {
+        riepilogoRepository.deleteByUserId(userId);
+    }
+
+    // 📈 Ultimi N mesi (mese corrente compreso), anche quelli senza movimenti
+    public List<RiepilogoMeseResponse> getUltimiMesi(String authHeader, int mesi) {
+        UtenteAutenticato utente = utenteResolver.risolvi(authHeader);
+        int numeroMesi = Math.max(1, Math.min(mesi, MAX_MESI));
+        YearMonth corrente = YearMonth.now();
+        YearMonth primo = corrente.minusMonths(numeroMesi - 1);
+
+        Map<YearMonth, RiepilogoMeseResponse> perMese = new LinkedHashMap<>();
+        for (YearMonth m = primo; !m.isAfter(corrente); m = m.plusMonths(1)) {
+            perMese.put(m, RiepilogoMeseResponse.builder()
+                    .periodo(m.toString())
+                    .entrate(BigDecimal.ZERO)
+                    .uscite(BigDecimal.ZERO)
+                    .netto(BigDecimal.ZERO)
+                    .entratePerCategoria(new EnumMap<>(CategoriaMovimento.class))
+                    .uscitePerCategoria(new EnumMap<>(CategoriaMovimento.class))
+                    .build());
+        }
+
+        for (RiepilogoMensile r : riepilogoRepository.findDalMese(utente.userId(), primo.getYear(), primo.getMonthValue())) {
+            RiepilogoMeseResponse mese = perMese.get(YearMonth.of(r.getAnno(), r.getMese()));
+            if (mese == null || r.getTotale().signum() == 0) {
+                continue; // mese futuro o categoria azzerata da eliminazioni
+            }
+            if (r.getTipo() == TipoMovimento.ENTRATA) {
+                mese.setEntrate(mese.getEntrate().add(r.getTotale()));
+                mese.getEntratePerCategoria().merge(r.getCategoria(), r.getTotale(), BigDecimal::add);
+            } else {
+                mese.setUscite(mese.getUscite().add(r.getTotale()));
+                mese.getUscitePerCategoria().merge(r.getCategoria(), r.getTotale(), BigDecimal::add);
+            }
+        }
+        perMese.values().forEach(m -> m.setNetto(m.getEntrate().subtract(m.getUscite())));
+
+        log.info("📈 Riepilogo di {} mesi per utente {}", numeroMesi, utente.email());
+        return new ArrayList<>(perMese.values());
+    }
+
+    // Primo avvio con la tabella vuota: popolo subito i rollup senza aspettare il job notturno
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSeVuota() {
+        if (riepilogoRepository.count() == 0) {
+            riallinea();
+        }
+    }
+
+    // 🔁 Backfill e riallineamento notturno a partire dai movimenti
+    @Scheduled(cron = "${myspendr.riepilogo-mensile.ricalcolo-cron:0 45 3 * * *}")
+    public void riallinea() {
+        riallineamento.riallinea("riepilogo_mensile",
+                riepilogoRepository::correggiDaMovimenti,
+                riepilogoRepository::eliminaVuoti);
+    }
+}
@@ -0,0 +1,29 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.repositories.SnapshotCapitaleRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotCapitaleService {
+
+    private final SnapshotCapitaleRepository snapshotRepository;
+
+    // 📸 Subito dopo mezzanotte salva il saldo di fine giornata nel mese di ieri:
+    // il giorno 1 chiude così il mese appena finito
+    @Scheduled(cron = "${myspendr.snapshot.cron:0 5 0 * * *}")
+    @Transactional
+    public void salvaSnapshotGiornaliero() {
+        LocalDate mese = LocalDate.now().minusDays(1).withDayOfMonth(1);
+        long inizio = System.nanoTime();
+        int righe = snapshotRepository.salvaSnapshot(mese);
+        log.info("📸 Snapshot capitale {} salvato per {} utenti in {} ms", mese, righe, (System.nanoTime() - inizio) / 1_000_000);
+    }
+}
@@ -0,0 +1,63 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.events.SpesaMensileAggiornataEvent;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.TipoMovimento;
+import com.myspendr.myspendr.repositories.SpesaMensileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Contatori di spesa mensile: i budget si leggono con una lookup invece di sommare i movimenti
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpesaMensileService {
+
+    private final SpesaMensileRepository spesaMensileRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RiallineamentoContatori riallineamento;
+
+    // Va chiamato nella stessa transazione che inserisce (importo positivo) o elimina (negativo) il movimento
+    public void registra(UUID userId, TipoMovimento tipo, CategoriaMovimento categoria, LocalDate data, BigDecimal importo) {
+        if (tipo != TipoMovimento.USCITA || categoria == null || data == null || importo == null) {
+            return;
+        }
+        spesaMensileRepository.incrementa(userId, categoria.name(), data.getYear(), data.getMonthValue(), importo);
+        // Il controllo dei budget parte solo dopo il commit (vedi BudgetAvvisoService)
+        eventPublisher.publishEvent(new SpesaMensileAggiornataEvent(userId, categoria, data.getYear(), data.getMonthValue()));
+    }
+
+    public BigDecimal getSpesa(UUID userId, CategoriaMovimento categoria, int mese, int anno) {
+        return spesaMensileRepository.findTotale(userId, categoria, anno, mese).orElse(BigDecimal.ZERO);
+    }
+
+    public void azzera(UUID userId) {
+        spesaMensileRepository.deleteByUserId(userId);
+    }
+
+    // Primo avvio con la tabella vuota: popolo subito i contatori senza aspettare il job notturno.
+    // Con più nodi avviati insieme lo esegue solo chi ottiene il lock.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillSeVuota() {
+        if (spesaMensileRepository.count() == 0) {
+            riallinea();
+        }
+    }
+
+    // 🔁 Backfill e riallineamento notturno dei contatori a partire dai movimenti
+    @Scheduled(cron = "${myspendr.spesa-mensile.ricalcolo-cron:0 30 3 * * *}")
+    public void riallinea() {
+        riallineamento.riallinea("spesa_mensile",
+                spesaMensileRepository::correggiDaMovimenti,
+                spesaMensileRepository::eliminaVuoti);
+    }
+}
@@ -1,16 +1,16 @@
 package com.myspendr.myspendr.services;
 
+import com.myspendr.myspendr.dto.CapitaleResponse;
 import com.myspendr.myspendr.dto.MovimentoRequest;
 import com.myspendr.myspendr.model.*;
 import com.myspendr.myspendr.repositories.*;
+import com.myspendr.myspendr.telegram.SessioneTelegram;
+import com.myspendr.myspendr.telegram.TelegramClient;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -24,6 +24,7 @@ import java.util.*;
 
 @Slf4j
 @Service
+@Timed("myspendr.service")
 @RequiredArgsConstructor
 public class TelegramBotService {
 
@@ -32,16 +33,14 @@ public class TelegramBotService {
     private final TelegramUserService telegramUserService;
     private final CapitaleRepository capitaleRepository;
     private final MovimentoRepository movimentoRepository;
-    private final BudgetMensileRepository budgetRepo;
     private final ApplicationContext context;
+    private final LookupCacheService lookupCacheService;
+    private final TelegramClient telegramClient;
 
     private MovimentoService movimentoService() {
         return context.getBean(MovimentoService.class);
     }
 
-    @Value("${telegram.bot.token}")
-    private String botToken;
-
     public void handleSpesaCommand(Message message) {
         Long telegramId = message.getFrom().getId();
 
@@ -57,21 +56,11 @@ public class TelegramBotService {
     }
 
     public void inviaMessaggioTelegram(Long chatId, String testo) {
-        String url = "https://api.telegram.org/bot" + botToken + "/sendMessage";
-        RestTemplate restTemplate = new RestTemplate();
         Map<String, Object> request = Map.of("chat_id", chatId, "text", testo);
-
-        try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-            log.info("📨 Risposta Telegram: {}", response.getBody());
-        } catch (Exception e) {
-            log.error("❌ Errore durante l'invio del messaggio Telegram", e);
-        }
+        telegramClient.sendMessage(chatId, request);
     }
 
     public void inviaInlineKeyboardTipoMovimento(Long chatId, String testo) {
-        String url = "https://api.telegram.org/bot" + botToken + "/sendMessage";
-        RestTemplate restTemplate = new RestTemplate();
 
         Map<String, Object> keyboard = Map.of(
                 "inline_keyboard", new Object[][]{
@@ -86,11 +75,7 @@ public class TelegramBotService {
                 "reply_markup", keyboard
         );
 
-        try {
-            restTemplate.postForEntity(url, request, String.class);
-        } catch (Exception e) {
-            log.error("❌ Errore nell'invio dei bottoni tipo movimento", e);
-        }
+        telegramClient.sendMessage(chatId, request);
     }
 
     public void handleStartCommand(Message message) {
@@ -132,8 +117,6 @@ public class TelegramBotService {
         String messaggio = "✏️ Ora inviami l’importo e la descrizione.\n\n" +
                 "Esempio:\n`12.50 sushi`\n\n" +
                 "Puoi anche aggiungere una data:\n`12.50 sushi 2025-05-25`";
-        String url = "https://api.telegram.org/bot" + botToken + "/sendMessage";
-        RestTemplate restTemplate = new RestTemplate();
 
         Map<String, Object> request = Map.of(
                 "chat_id", telegramId,
@@ -141,12 +124,8 @@ public class TelegramBotService {
                 "parse_mode", "Markdown"
         );
 
-        try {
-            restTemplate.postForEntity(url, request, String.class);
-            log.info("📨 Messaggio per inserimento importo/descrizione inviato a {}", telegramId);
-        } catch (Exception e) {
-            log.error("❌ Errore durante l'invio del messaggio per importo e descrizione", e);
-        }
+        telegramClient.sendMessage(telegramId, request);
+        log.info("📨 Messaggio per inserimento importo/descrizione accodato per {}", telegramId);
     }
 
     public void mostraBottoniFonte(Long telegramId) {
@@ -164,7 +143,7 @@ public class TelegramBotService {
         messaggio.setText("📌 Seleziona una fonte:");
         messaggio.setReplyMarkup(markup);
 
-        inviaMessaggioConMarkup(messaggio);
+        telegramClient.sendMessage(telegramId, messaggio);
     }
 
     private InlineKeyboardButton creaBottone(String text, String callbackData) {
@@ -174,12 +153,6 @@ public class TelegramBotService {
         return button;
     }
 
-    private void inviaMessaggioConMarkup(SendMessage messaggio) {
-        RestTemplate restTemplate = new RestTemplate();
-        String url = "https://api.telegram.org/bot" + botToken + "/sendMessage";
-        restTemplate.postForObject(url, messaggio, String.class);
-    }
-
 
     public void mostraBottoniCategoria(Long telegramId) {
         List<List<InlineKeyboardButton>> righe = new ArrayList<>();
@@ -202,16 +175,7 @@ public class TelegramBotService {
         messaggio.setText("📌 Seleziona una categoria:");
         messaggio.setReplyMarkup(markup);
 
-        try {
-            RestTemplate restTemplate = new RestTemplate();
-            String url = UriComponentsBuilder
-                    .fromHttpUrl("https://api.telegram.org/bot" + botToken + "/sendMessage")
-                    .build().toUriString();
-
-            restTemplate.postForObject(url, messaggio, String.class);
-        } catch (Exception e) {
-            log.error("❌ Errore nell'invio dei bottoni categoria", e);
-        }
+        telegramClient.sendMessage(telegramId, messaggio);
     }
 
     public void creaSpesaViaTelegram(User user,
@@ -230,49 +194,11 @@ public class TelegramBotService {
         request.setCategoria(categoria);
         request.setFonte(fonte);
 
+        // Il controllo budget avviene dopo il commit (BudgetAvvisoService)
         movimentoService().creaMovimentoDaTelegram(user, request);
-
-        // 🔔 Notifica se budget superato
-        if (tipo == TipoMovimento.USCITA) {
-            Long telegramId = telegramUserRepository.findByUser(user)
-                    .map(TelegramUser::getTelegramId)
-                    .orElse(null);
-            if (telegramId != null) {
-                controllaEBudgetSuperato(user, categoria, data.getMonthValue(), data.getYear(), telegramId);
-            }
-        }
     }
 
 
-    private void controllaEBudgetSuperato(User user, CategoriaMovimento categoria, int mese, int anno, Long telegramId) {
-        try {
-            BudgetMensile budget = budgetRepo.findByUserAndCategoriaAndMeseAndAnno(user, categoria, mese, anno).orElse(null);
-
-            if (budget != null) {
-                BigDecimal limite = budget.getLimite();
-                BigDecimal speso = movimentoRepository.findByCapitale_UserAndCategoriaAndTipoAndDataBetween(
-                                user, categoria, TipoMovimento.USCITA,
-                                LocalDate.of(anno, mese, 1),
-                                LocalDate.of(anno, mese, 1).withDayOfMonth(LocalDate.of(anno, mese, 1).lengthOfMonth())
-                        ).stream()
-                        .map(Movimento::getImporto)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                if (speso.compareTo(limite) > 0) {
-                    BigDecimal sforamento = speso.subtract(limite);
-                    String messaggio = "⚠️ *Budget Superato!*\nHai speso *" + speso + "€* su un limite di *" + limite + "€* per la categoria *" + categoria + "*.\nSforamento: *" + sforamento + "€*";
-
-                    inviaMessaggioTelegram(telegramId, messaggio);
-                }
-            }
-
-        } catch (Exception e) {
-            log.error("❌ Errore nel controllo del budget superato", e);
-        }
-    }
-
-
-
     public void handleTextMessage(Message message) {
         Long telegramId = message.getFrom().getId();
         TelegramUser telegramUser = telegramUserService.findByTelegramId(telegramId);
@@ -289,16 +215,14 @@ public class TelegramBotService {
             String descrizione = parti[1];
             LocalDate data = parti.length == 3 ? LocalDate.parse(parti[2]) : LocalDate.now();
 
-            TipoMovimento tipo = telegramUserService.getTipoTemporaneo(telegramId);
-            CategoriaMovimento categoria = telegramUserService.getCategoriaTemporanea(telegramId);
-            String fonte = telegramUserService.getFonteTemporanea(telegramId);
+            SessioneTelegram sessione = telegramUserService.getSessione(telegramId);
 
-            if (tipo == null || categoria == null || fonte == null) {
+            if (!sessione.completa()) {
                 inviaMessaggioTelegram(telegramId, "❌ Devi prima selezionare tipo, categoria e fonte del movimento.");
                 return;
             }
 
-            creaSpesaViaTelegram(telegramUser.getUser(), importo, descrizione, data, tipo, categoria, fonte);
+            creaSpesaViaTelegram(telegramUser.getUser(), importo, descrizione, data, sessione.tipo(), sessione.categoria(), sessione.fonte());
             inviaMessaggioTelegram(telegramId, "✅ Movimento salvato correttamente!");
             telegramUserService.clearSession(telegramId);
 
@@ -343,8 +267,7 @@ public class TelegramBotService {
             return;
         }
 
-        Capitale capitale = capitaleRepository.findByUserId(telegramUser.getUser().getId())
-                .orElse(null);
+        CapitaleResponse capitale = lookupCacheService.findCapitaleByUserId(telegramUser.getUser().getId());
 
         if (capitale == null) {
             inviaMessaggioTelegram(telegramId, "📭 Nessun capitale trovato. Usa l’app per crearlo.");
@@ -388,21 +311,14 @@ public class TelegramBotService {
                 Buon tracciamento con MySpendr 💰
                 """;
 
-        String url = "https://api.telegram.org/bot" + botToken + "/sendMessage";
-        RestTemplate restTemplate = new RestTemplate();
-
         Map<String, Object> request = Map.of(
                 "chat_id", chatId,
                 "text", messaggio,
                 "parse_mode", "Markdown"
         );
 
-        try {
-            restTemplate.postForEntity(url, request, String.class);
-            log.info("📘 Messaggio /help inviato a {}", chatId);
-        } catch (Exception e) {
-            log.error("❌ Errore durante l'invio del messaggio di help", e);
-        }
+        telegramClient.sendMessage(chatId, request);
+        log.info("📘 Messaggio /help accodato per {}", chatId);
     }
 
 
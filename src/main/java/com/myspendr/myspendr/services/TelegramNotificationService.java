@@ -1,12 +1,12 @@
 package com.myspendr.myspendr.services;
 
 import com.myspendr.myspendr.model.CategoriaMovimento;
-import com.myspendr.myspendr.model.User;
 import com.myspendr.myspendr.repositories.TelegramUserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -15,13 +15,24 @@ public class TelegramNotificationService {
     private final TelegramUserRepository telegramUserRepository;
     private final TelegramBotService telegramBotService;
 
-    public void inviaAvvisoBudgetSuperato(User user, CategoriaMovimento categoria, int mese, int anno, BigDecimal speso, BigDecimal limite) {
-        telegramUserRepository.findByUser(user).ifPresent(telegramUser -> {
-            String messaggio = """
+    public void inviaAvvisoBudgetSuperato(UUID userId, CategoriaMovimento categoria, int mese, int anno, BigDecimal speso, BigDecimal limite) {
+        String messaggio = """
                 ⚠️ Hai superato il budget per *%s* nel mese %d/%d.
                 Speso: *€%.2f* / Limite: *€%.2f*
                 """.formatted(categoria.name(), mese, anno, speso, limite);
-            telegramBotService.inviaMessaggioTelegram(telegramUser.getTelegramId(), messaggio);
-        });
+        invia(userId, messaggio);
+    }
+
+    public void inviaAvvisoBudgetInEsaurimento(UUID userId, CategoriaMovimento categoria, int mese, int anno, BigDecimal speso, BigDecimal limite) {
+        String messaggio = """
+                🟠 Hai usato l'80%% del budget per *%s* nel mese %d/%d.
+                Speso: *€%.2f* / Limite: *€%.2f*
+                """.formatted(categoria.name(), mese, anno, speso, limite);
+        invia(userId, messaggio);
+    }
+
+    private void invia(UUID userId, String messaggio) {
+        telegramUserRepository.findByUser_Id(userId).ifPresent(telegramUser ->
+                telegramBotService.inviaMessaggioTelegram(telegramUser.getTelegramId(), messaggio));
     }
 }
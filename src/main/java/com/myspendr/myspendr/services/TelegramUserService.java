@@ -4,53 +4,40 @@ import com.myspendr.myspendr.model.CategoriaMovimento;
 import com.myspendr.myspendr.model.TelegramUser;
 import com.myspendr.myspendr.model.TipoMovimento;
 import com.myspendr.myspendr.repositories.TelegramUserRepository;
+import com.myspendr.myspendr.telegram.SessioneTelegram;
+import com.myspendr.myspendr.telegram.SessioneTelegramStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Service
 @RequiredArgsConstructor
 public class TelegramUserService {
 
     private final TelegramUserRepository telegramUserRepository;
-
-    private final Map<Long, TipoMovimento> tipoTemporaneo = new HashMap<>();
-    private final Map<Long, CategoriaMovimento> categoriaTemporanea = new HashMap<>();
-    private final Map<Long, String> fonteTemporanea = new HashMap<>(); // NUOVA MAPPA FONTE
+    private final SessioneTelegramStore sessioneStore;
 
     public TelegramUser findByTelegramId(Long telegramId) {
         return telegramUserRepository.findById(telegramId).orElse(null);
     }
 
     public void updateTipoTemporaneo(TelegramUser user, TipoMovimento tipo) {
-        tipoTemporaneo.put(user.getTelegramId(), tipo);
-    }
-
-    public TipoMovimento getTipoTemporaneo(Long telegramId) {
-        return tipoTemporaneo.get(telegramId);
+        sessioneStore.aggiorna(user.getTelegramId(), s -> s.conTipo(tipo));
     }
 
     public void updateCategoriaTemporanea(TelegramUser user, CategoriaMovimento categoria) {
-        categoriaTemporanea.put(user.getTelegramId(), categoria);
-    }
-
-    public CategoriaMovimento getCategoriaTemporanea(Long telegramId) {
-        return categoriaTemporanea.get(telegramId);
+        sessioneStore.aggiorna(user.getTelegramId(), s -> s.conCategoria(categoria));
     }
 
     public void updateFonteTemporanea(TelegramUser user, String fonte) {
-        fonteTemporanea.put(user.getTelegramId(), fonte);
+        sessioneStore.aggiorna(user.getTelegramId(), s -> s.conFonte(fonte));
     }
 
-    public String getFonteTemporanea(Long telegramId) {
-        return fonteTemporanea.get(telegramId);
+    // Legge tipo, categoria e fonte in un colpo solo
+    public SessioneTelegram getSessione(Long telegramId) {
+        return sessioneStore.trova(telegramId).orElse(SessioneTelegram.VUOTA);
     }
 
     public void clearSession(Long telegramId) {
-        tipoTemporaneo.remove(telegramId);
-        categoriaTemporanea.remove(telegramId);
-        fonteTemporanea.remove(telegramId);
+        sessioneStore.rimuovi(telegramId);
     }
 }
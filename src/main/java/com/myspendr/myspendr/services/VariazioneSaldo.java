@@ -0,0 +1,29 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.model.TipoMovimento;
+
+import java.math.BigDecimal;
+
+// 💰 Variazione dei tre saldi del capitale prodotta da uno o più movimenti, applicata poi con un solo UPDATE atomico
+public record VariazioneSaldo(BigDecimal banca, BigDecimal contanti, BigDecimal altri) {
+
+    public static final VariazioneSaldo NESSUNA = new VariazioneSaldo(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+    public static VariazioneSaldo di(TipoMovimento tipo, String fonte, BigDecimal importo) {
+        BigDecimal delta = switch (tipo) {
+            case ENTRATA -> importo;
+            case USCITA -> importo.negate();
+        };
+
+        return switch (fonte.toUpperCase()) {
+            case "BANCA" -> new VariazioneSaldo(delta, BigDecimal.ZERO, BigDecimal.ZERO);
+            case "CONTANTI" -> new VariazioneSaldo(BigDecimal.ZERO, delta, BigDecimal.ZERO);
+            case "ALTRI" -> new VariazioneSaldo(BigDecimal.ZERO, BigDecimal.ZERO, delta);
+            default -> throw new IllegalArgumentException("Fonte non valida: " + fonte);
+        };
+    }
+
+    public VariazioneSaldo piu(VariazioneSaldo altra) {
+        return new VariazioneSaldo(banca.add(altra.banca), contanti.add(altra.contanti), altri.add(altra.altri));
+    }
+}
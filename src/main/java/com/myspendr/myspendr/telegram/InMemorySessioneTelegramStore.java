@@ -0,0 +1,44 @@
+package com.myspendr.myspendr.telegram;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+// Sessioni nella memoria del singolo nodo: scadono dopo un periodo di inattività e sono limitate in numero
+@Component
+@ConditionalOnProperty(name = "telegram.sessioni.store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySessioneTelegramStore implements SessioneTelegramStore {
+
+    private final Cache<Long, SessioneTelegram> sessioni;
+
+    public InMemorySessioneTelegramStore(@Value("${telegram.sessioni.ttl-minutes:30}") long ttlMinuti,
+                                         @Value("${telegram.sessioni.max-size:10000}") long maxSessioni) {
+        this.sessioni = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(ttlMinuti))
+                .maximumSize(maxSessioni)
+                .build();
+    }
+
+    @Override
+    public Optional<SessioneTelegram> trova(Long chatId) {
+        return Optional.ofNullable(sessioni.getIfPresent(chatId));
+    }
+
+    @Override
+    public void aggiorna(Long chatId, UnaryOperator<SessioneTelegram> modifica) {
+        // compute è atomico per chiave: due callback concorrenti non si sovrascrivono
+        sessioni.asMap().compute(chatId, (id, attuale) ->
+                modifica.apply(attuale != null ? attuale : SessioneTelegram.VUOTA));
+    }
+
+    @Override
+    public void rimuovi(Long chatId) {
+        sessioni.invalidate(chatId);
+    }
+}
@@ -0,0 +1,93 @@
+package com.myspendr.myspendr.telegram;
+
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.TipoMovimento;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+// Sessioni condivise su database: più nodi dietro un load balancer vedono lo stesso wizard.
+// La tabella telegram_sessioni è mappata dall'entità TelegramSessione.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "telegram.sessioni.store", havingValue = "jdbc")
+public class JdbcSessioneTelegramStore implements SessioneTelegramStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public JdbcSessioneTelegramStore(JdbcTemplate jdbcTemplate,
+                                     @Value("${telegram.sessioni.ttl-minutes:30}") long ttlMinuti) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = Duration.ofMinutes(ttlMinuti);
+    }
+
+    @Override
+    public Optional<SessioneTelegram> trova(Long chatId) {
+        List<SessioneTelegram> risultato = jdbcTemplate.query(
+                "SELECT tipo, categoria, fonte FROM telegram_sessioni WHERE chat_id = ? AND aggiornata_il > ?",
+                (rs, i) -> leggi(rs), chatId, scadenza());
+        return risultato.stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    public void aggiorna(Long chatId, UnaryOperator<SessioneTelegram> modifica) {
+        // La riga deve esistere per poterla bloccare: due nodi sulla stessa chat si serializzano sul FOR UPDATE
+        // invece di sovrascriversi a vicenda il passo del wizard
+        jdbcTemplate.update("""
+                        INSERT INTO telegram_sessioni (chat_id, aggiornata_il) VALUES (?, ?)
+                        ON CONFLICT (chat_id) DO NOTHING""",
+                chatId, Timestamp.from(Instant.now()));
+        SessioneTelegram corrente = jdbcTemplate.queryForObject(
+                "SELECT tipo, categoria, fonte, aggiornata_il FROM telegram_sessioni WHERE chat_id = ? FOR UPDATE",
+                (rs, i) -> rs.getTimestamp("aggiornata_il").after(scadenza()) ? leggi(rs) : SessioneTelegram.VUOTA,
+                chatId);
+
+        SessioneTelegram nuova = modifica.apply(corrente);
+        jdbcTemplate.update("UPDATE telegram_sessioni SET tipo = ?, categoria = ?, fonte = ?, aggiornata_il = ? WHERE chat_id = ?",
+                nuova.tipo() != null ? nuova.tipo().name() : null,
+                nuova.categoria() != null ? nuova.categoria().name() : null,
+                nuova.fonte(),
+                Timestamp.from(Instant.now()),
+                chatId);
+    }
+
+    @Override
+    public void rimuovi(Long chatId) {
+        jdbcTemplate.update("DELETE FROM telegram_sessioni WHERE chat_id = ?", chatId);
+    }
+
+    // Elimina i wizard abbandonati
+    @Scheduled(fixedDelayString = "${telegram.sessioni.pulizia-ms:300000}")
+    public void eliminaScadute() {
+        int eliminate = jdbcTemplate.update("DELETE FROM telegram_sessioni WHERE aggiornata_il <= ?", scadenza());
+        if (eliminate > 0) {
+            log.info("🧹 Eliminate {} sessioni Telegram scadute", eliminate);
+        }
+    }
+
+    private static SessioneTelegram leggi(ResultSet rs) throws SQLException {
+        return new SessioneTelegram(
+                rs.getString("tipo") != null ? TipoMovimento.valueOf(rs.getString("tipo")) : null,
+                rs.getString("categoria") != null ? CategoriaMovimento.valueOf(rs.getString("categoria")) : null,
+                rs.getString("fonte"));
+    }
+
+    private Timestamp scadenza() {
+        return Timestamp.from(Instant.now().minus(ttl));
+    }
+}
@@ -0,0 +1,51 @@
+package com.myspendr.myspendr.telegram;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Pool di worker a thread singolo: i task con la stessa chiave finiscono sempre sullo stesso worker
+// (quindi restano in ordine), chiavi diverse procedono in parallelo. Ogni worker ha una coda limitata.
+// Con i virtual thread (spring.threads.virtual.enabled=true) un worker bloccato sull'I/O non occupa un thread di piattaforma.
+public class PartitionedExecutor {
+
+    private final ThreadPoolExecutor[] workers;
+
+    public PartitionedExecutor(String nome, int numeroWorkers, int capacitaCoda, boolean virtualThreads) {
+        this.workers = new ThreadPoolExecutor[numeroWorkers];
+        for (int i = 0; i < numeroWorkers; i++) {
+            String nomeThread = nome + "-" + i;
+            ThreadFactory threadFactory = virtualThreads
+                    ? Thread.ofVirtual().name(nomeThread).factory()
+                    : Thread.ofPlatform().name(nomeThread).daemon(true).factory();
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacitaCoda), threadFactory);
+        }
+    }
+
+    // Ritorna false se la coda del worker è piena
+    public boolean submit(long chiave, Runnable task) {
+        ThreadPoolExecutor worker = workers[Math.floorMod(Long.hashCode(chiave), workers.length)];
+        try {
+            worker.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public void shutdown(long timeoutSeconds) {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor worker : workers) {
+                worker.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
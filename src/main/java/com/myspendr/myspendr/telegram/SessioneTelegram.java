@@ -0,0 +1,26 @@
+package com.myspendr.myspendr.telegram;
+
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.TipoMovimento;
+
+// Stato del wizard /spesa di una chat: immutabile, ogni passo produce una nuova sessione
+public record SessioneTelegram(TipoMovimento tipo, CategoriaMovimento categoria, String fonte) {
+
+    public static final SessioneTelegram VUOTA = new SessioneTelegram(null, null, null);
+
+    public SessioneTelegram conTipo(TipoMovimento tipo) {
+        return new SessioneTelegram(tipo, categoria, fonte);
+    }
+
+    public SessioneTelegram conCategoria(CategoriaMovimento categoria) {
+        return new SessioneTelegram(tipo, categoria, fonte);
+    }
+
+    public SessioneTelegram conFonte(String fonte) {
+        return new SessioneTelegram(tipo, categoria, fonte);
+    }
+
+    public boolean completa() {
+        return tipo != null && categoria != null && fonte != null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.myspendr.myspendr.telegram;
+
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+// Backend delle sessioni Telegram, scelto con telegram.sessioni.store=memory|jdbc
+public interface SessioneTelegramStore {
+
+    Optional<SessioneTelegram> trova(Long chatId);
+
+    void aggiorna(Long chatId, UnaryOperator<SessioneTelegram> modifica);
+
+    void rimuovi(Long chatId);
+}
@@ -0,0 +1,105 @@
+package com.myspendr.myspendr.telegram;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Client unico verso le API di Telegram: connessioni HTTP in pool e invii asincroni,
+// partizionati per chat così i messaggi arrivano nell'ordine di invio.
+@Slf4j
+@Component
+public class TelegramClient {
+
+    private final String sendMessageUrl;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final PartitionedExecutor workers;
+    private final Timer inviiOk;
+    private final Timer inviiFalliti;
+    private final Counter inviiScartati;
+
+    // Worker di default: con i virtual thread le chiamate lente in volo costano poco, quindi ne tengo molte di più
+    private static final int WORKERS_PIATTAFORMA = 4;
+    private static final int WORKERS_VIRTUALI = 64;
+
+    public TelegramClient(RestTemplateBuilder restTemplateBuilder,
+                          MeterRegistry meterRegistry,
+                          @Value("${telegram.bot.token}") String botToken,
+                          @Value("${telegram.api.base-url:https://api.telegram.org}") String baseUrl,
+                          @Value("${telegram.client.workers:0}") int numeroWorkers,
+                          @Value("${telegram.client.queue-capacity:1000}") int capacitaCoda,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                          @Value("${telegram.client.max-connections:0}") int maxConnessioni) {
+        this.sendMessageUrl = baseUrl + "/bot" + botToken + "/sendMessage";
+        int workersEffettivi = numeroWorkers > 0 ? numeroWorkers : (virtualThreads ? WORKERS_VIRTUALI : WORKERS_PIATTAFORMA);
+        // Di default una connessione per worker, così nessun invio aspetta il pool HTTP
+        int connessioni = maxConnessioni > 0 ? maxConnessioni : Math.max(20, workersEffettivi);
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(connessioni)
+                .setMaxConnPerRoute(connessioni)
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectionRequestTimeout(Duration.ofSeconds(5));
+        requestFactory.setConnectTimeout(Duration.ofSeconds(5));
+        requestFactory.setReadTimeout(Duration.ofSeconds(10));
+        this.restTemplate = restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .build();
+
+        this.workers = new PartitionedExecutor("telegram-out", workersEffettivi, capacitaCoda, virtualThreads);
+
+        this.inviiOk = Timer.builder("myspendr.telegram.send").tag("outcome", "success").register(meterRegistry);
+        this.inviiFalliti = Timer.builder("myspendr.telegram.send").tag("outcome", "error").register(meterRegistry);
+        this.inviiScartati = Counter.builder("myspendr.telegram.send.dropped")
+                .description("Messaggi scartati per coda di invio piena")
+                .register(meterRegistry);
+    }
+
+    // Accoda l'invio e ritorna subito; se la coda è piena il messaggio viene scartato e loggato
+    public void sendMessage(Long chatId, Object payload) {
+        if (!workers.submit(chatId, () -> invia(chatId, payload))) {
+            inviiScartati.increment();
+            log.error("❌ Coda invii Telegram piena: messaggio per chat {} scartato", chatId);
+        }
+    }
+
+    private void invia(Long chatId, Object payload) {
+        long inizio = System.nanoTime();
+        try {
+            String risposta = restTemplate.postForObject(sendMessageUrl, payload, String.class);
+            inviiOk.record(System.nanoTime() - inizio, TimeUnit.NANOSECONDS);
+            log.debug("📨 Risposta Telegram per chat {}: {}", chatId, risposta);
+        } catch (Exception e) {
+            inviiFalliti.record(System.nanoTime() - inizio, TimeUnit.NANOSECONDS);
+            log.error("❌ Errore durante l'invio del messaggio Telegram a {}", chatId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        workers.shutdown(5);
+        httpClient.close();
+    }
+}
@@ -0,0 +1,125 @@
+package com.myspendr.myspendr.telegram;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.myspendr.myspendr.services.TelegramBotService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+
+// Riceve gli update del webhook, scarta i duplicati (stesso update_id) e li elabora in background:
+// gli update della stessa chat restano in ordine, chat diverse vengono servite in parallelo.
+@Slf4j
+@Component
+public class TelegramUpdateDispatcher {
+
+    public enum Esito {
+        ACCODATO,
+        DUPLICATO,
+        RIFIUTATO
+    }
+
+    private final TelegramBotService telegramBotService;
+    private final CallBackHandler callBackHandler;
+    private final PartitionedExecutor workers;
+    private final Cache<Integer, Boolean> updateRicevuti;
+    private final MeterRegistry meterRegistry;
+
+    public TelegramUpdateDispatcher(TelegramBotService telegramBotService,
+                                    CallBackHandler callBackHandler,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${telegram.webhook.workers:4}") int numeroWorkers,
+                                    @Value("${telegram.webhook.queue-capacity:500}") int capacitaCoda,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                    @Value("${telegram.webhook.dedup-minutes:30}") long dedupMinuti) {
+        this.telegramBotService = telegramBotService;
+        this.callBackHandler = callBackHandler;
+        this.meterRegistry = meterRegistry;
+        this.workers = new PartitionedExecutor("telegram-in", numeroWorkers, capacitaCoda, virtualThreads);
+        this.updateRicevuti = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(dedupMinuti))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public Esito ricevi(Update update) {
+        Esito esito = accoda(update);
+        meterRegistry.counter("myspendr.telegram.updates", "esito", esito.name()).increment();
+        return esito;
+    }
+
+    private Esito accoda(Update update) {
+        Integer updateId = update.getUpdateId();
+        if (updateId != null && updateRicevuti.asMap().putIfAbsent(updateId, Boolean.TRUE) != null) {
+            log.info("🔁 Update Telegram {} già ricevuto: ignorato", updateId);
+            return Esito.DUPLICATO;
+        }
+
+        Long mittente = mittenteDi(update);
+        if (mittente == null) {
+            return Esito.ACCODATO;
+        }
+
+        if (!workers.submit(mittente, () -> elabora(update))) {
+            // Coda piena: dimentico l'update così il retry di Telegram verrà elaborato
+            if (updateId != null) {
+                updateRicevuti.invalidate(updateId);
+            }
+            log.warn("⏳ Coda update Telegram piena, update {} rifiutato", updateId);
+            return Esito.RIFIUTATO;
+        }
+        return Esito.ACCODATO;
+    }
+
+    // Partiziono per utente Telegram sia i messaggi sia i callback, così i comandi e i bottoni dello stesso
+    // utente restano in ordine; senza mittente (es. post di un canale) ripiego sulla chat
+    private Long mittenteDi(Update update) {
+        if (update.hasMessage()) {
+            Message message = update.getMessage();
+            return message.getFrom() != null ? message.getFrom().getId() : message.getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        return null;
+    }
+
+    private void elabora(Update update) {
+        try {
+            if (update.hasMessage() && update.getMessage().hasText()) {
+                String text = update.getMessage().getText();
+
+                if (text.startsWith("/start")) {
+                    telegramBotService.handleStartCommand(update.getMessage());
+                } else if (text.startsWith("/spesa")) {
+                    telegramBotService.handleSpesaCommand(update.getMessage());
+                } else if (text.startsWith("/test")) {
+                    telegramBotService.inviaMessaggioTelegram(update.getMessage().getChatId(), "✅ Il bot è attivo e funzionante! 🚀");
+                } else if (text.startsWith("/riepilogo")) {
+                    telegramBotService.handleRiepilogoCommand(update.getMessage().getChatId());
+                } else if (text.startsWith("/ultimi")) {
+                    telegramBotService.handleUltimiCommand(update.getMessage().getChatId());
+                } else if (text.startsWith("/help")) {
+                    telegramBotService.handleHelpCommand(update.getMessage().getChatId());
+                } else {
+                    telegramBotService.handleTextMessage(update.getMessage());
+                }
+            } else if (update.hasCallbackQuery()) {
+                callBackHandler.handleCallback(update.getCallbackQuery());
+            }
+        } catch (Exception e) {
+            log.error("❌ Errore nell'elaborazione dell'update Telegram {}", update.getUpdateId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown(10);
+    }
+}
@@ -0,0 +1,78 @@
+package com.myspendr.myspendr;
+
+import com.myspendr.myspendr.security.JwtUtils;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Base dei test di integrazione: un Postgres embedded per JVM, così le query native (ON CONFLICT, advisory lock)
+// girano sul database vero. Il contesto Spring viene condiviso tra le classi che estendono questa.
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.mail.host=localhost",
+        "jwt.secret=test-secret-test-secret-test-secret-test-secret-test-secret-test",
+        "jwt.access-expiration-ms=3600000",
+        "telegram.bot.token=test",
+        "logging.level.com.myspendr=WARN"
+})
+public abstract class PostgresEmbeddedTest {
+
+    private static final EmbeddedPostgres POSTGRES = avvia();
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected JwtUtils jwtUtils;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    // 👤 Utente confermato con un capitale già inizializzato; ogni chiamata crea un utente diverso
+    protected UtenteAutenticato creaUtente(BigDecimal banca, BigDecimal contanti, BigDecimal altri) {
+        UUID userId = UUID.randomUUID();
+        String email = "test-" + userId + "@myspendr.it";
+        jdbcTemplate.update("INSERT INTO users (id, nome, cognome, username, email, password, data_registrazione, " +
+                        "tentativi_falliti, email_confirmed) VALUES (?, 'Test', 'Test', ?, ?, 'x', ?, 0, true)",
+                userId, "test-" + userId, email, Date.valueOf(LocalDate.now()));
+        Long capitaleId = jdbcTemplate.queryForObject("INSERT INTO capitale (conto_bancario, liquidita, altri_fondi, " +
+                        "totale, data_aggiornamento, user_id) VALUES (?, ?, ?, ?, ?, ?) RETURNING id",
+                Long.class, banca, contanti, altri, banca.add(contanti).add(altri), Date.valueOf(LocalDate.now()), userId);
+        return new UtenteAutenticato(userId, email, capitaleId);
+    }
+
+    protected String bearer(UtenteAutenticato utente) {
+        return "Bearer " + jwtUtils.generateJwtToken(utente);
+    }
+
+    private static EmbeddedPostgres avvia() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // la JVM sta terminando
+                }
+            }));
+            return postgres;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Avvio del Postgres embedded fallito", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.myspendr.myspendr.security;
+
+import com.myspendr.myspendr.PostgresEmbeddedTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// I fallimenti di autenticazione rispondono 401, anche con un token valido di un utente che non esiste più
+@AutoConfigureMockMvc
+class JwtAuthenticationFilterTest extends PostgresEmbeddedTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void tokenDiUtenteEliminatoRisponde401() throws Exception {
+        UtenteAutenticato eliminato = new UtenteAutenticato(UUID.randomUUID(), "eliminato-" + UUID.randomUUID() + "@myspendr.it", 1L);
+
+        mockMvc.perform(get("/movimenti/totale/entrate").header("Authorization", bearer(eliminato)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokenMancanteONonValidoRisponde401() throws Exception {
+        mockMvc.perform(get("/movimenti/totale/entrate"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/movimenti/totale/entrate").header("Authorization", "Bearer non-un-jwt"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void tokenValidoAutentica() throws Exception {
+        UtenteAutenticato utente = creaUtente(new BigDecimal("10.00"), BigDecimal.ZERO, BigDecimal.ZERO);
+
+        mockMvc.perform(get("/movimenti/totale/entrate").header("Authorization", bearer(utente)))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,93 @@
+package com.myspendr.myspendr.security;
+
+import com.myspendr.myspendr.exceptions.PasswordHashingBusyException;
+import com.myspendr.myspendr.exceptions.PasswordHashingTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+// Pool di hashing limitato: oltre workers + coda le richieste vengono rifiutate subito, quelle in coda troppo a lungo scadono
+class PasswordHasherTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch sblocca = new CountDownLatch(1);
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void chiudi() {
+        sblocca.countDown();
+        if (hasher != null) {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void cifraEVerifica() {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(4), meterRegistry, 2, 2, 5_000);
+
+        String hash = hasher.cifra("segreta");
+
+        assertThat(hasher.verifica("segreta", hash)).isTrue();
+        assertThat(hasher.verifica("sbagliata", hash)).isFalse();
+        assertThat(meterRegistry.timer("myspendr.hashing").count()).isEqualTo(3);
+    }
+
+    @Test
+    void codaPienaRifiutataSubito() {
+        hasher = new PasswordHasher(encoderBloccato(), meterRegistry, 1, 1, 30_000);
+
+        // Un hashing occupa l'unico worker, un secondo riempie la coda
+        CompletableFuture.runAsync(() -> hasher.cifra("prima"));
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> meterRegistry.get("myspendr.hashing.queue").gauge().value() == 0);
+        CompletableFuture.runAsync(() -> hasher.cifra("seconda"));
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> meterRegistry.get("myspendr.hashing.queue").gauge().value() == 1);
+
+        long inizio = System.nanoTime();
+        assertThatThrownBy(() -> hasher.cifra("terza")).isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inizio)).isLessThan(1_000);
+        assertThat(meterRegistry.get("myspendr.hashing.rejected").tag("reason", "queue-full").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void hashingOltreIlTimeoutScade() {
+        hasher = new PasswordHasher(encoderBloccato(), meterRegistry, 1, 1, 200);
+
+        assertThatThrownBy(() -> hasher.cifra("lenta")).isInstanceOf(PasswordHashingTimeoutException.class);
+        assertThat(meterRegistry.get("myspendr.hashing.rejected").tag("reason", "timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    // Encoder che resta occupato finché il test non lo sblocca
+    private PasswordEncoder encoderBloccato() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    sblocca.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.myspendr.myspendr.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Watermark al millisecondo: i token emessi prima della revoca sono rifiutati, quelli emessi subito dopo no
+class RevocaTokenStoreTest {
+
+    private static final String SEGRETO = "test-secret-test-secret-test-secret-test-secret-test-secret-test";
+
+    private final JwtUtils jwtUtils = new JwtUtils(SEGRETO, 900_000, 100);
+    private final RevocaTokenStore store = new RevocaTokenStore(900_000);
+
+    @Test
+    void tokenEmessoSubitoDopoRevocaTuttiRestaValido() throws Exception {
+        UtenteAutenticato utente = new UtenteAutenticato(UUID.randomUUID(), "mario@myspendr.it", 1L);
+        Claims prima = claims(jwtUtils.generateJwtToken(utente));
+
+        Thread.sleep(2);
+        store.revocaTutti(utente.email());
+        Thread.sleep(2);
+        Claims dopo = claims(jwtUtils.generateJwtToken(utente));
+
+        assertThat(store.isRevocato(prima)).isTrue();
+        assertThat(store.isRevocato(dopo)).isFalse();
+    }
+
+    @Test
+    void claimsObsoletiSoloPerTokenEmessiPrima() throws Exception {
+        UtenteAutenticato utente = new UtenteAutenticato(UUID.randomUUID(), "anna@myspendr.it", 1L);
+        Claims prima = claims(jwtUtils.generateJwtToken(utente));
+
+        Thread.sleep(2);
+        store.segnaClaimsObsoleti(utente.email());
+        Thread.sleep(2);
+        Claims dopo = claims(jwtUtils.generateJwtToken(utente));
+
+        assertThat(store.claimsAggiornati(prima)).isFalse();
+        assertThat(store.claimsAggiornati(dopo)).isTrue();
+    }
+
+    @Test
+    void logoutRevocaSoloIlTokenIndicato() {
+        Claims revocato = claims(jwtUtils.generateJwtToken("luca@myspendr.it"));
+        Claims altro = claims(jwtUtils.generateJwtToken("luca@myspendr.it"));
+
+        store.revoca(revocato);
+
+        assertThat(store.isRevocato(revocato)).isTrue();
+        assertThat(store.isRevocato(altro)).isFalse();
+    }
+
+    private Claims claims(String token) {
+        return jwtUtils.getClaimsIfValid(token).orElseThrow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.PostgresEmbeddedTest;
+import com.myspendr.myspendr.dto.BudgetRequest;
+import com.myspendr.myspendr.dto.MovimentoRequest;
+import com.myspendr.myspendr.metrics.ContatoreQuery;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.TipoMovimento;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// /budget/all legge budget e spesa con una sola query: il numero di statement non deve crescere con i budget
+@AutoConfigureMockMvc
+class BudgetServiceQueryTest extends PostgresEmbeddedTest {
+
+    private static final int MAX_STATEMENT = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private MovimentoService movimentoService;
+
+    @Autowired
+    private ContatoreQuery contatoreQuery;
+
+    @Test
+    void tuttiIBudgetConAlPiuDueStatement() throws Exception {
+        UtenteAutenticato utente = creaUtente(new BigDecimal("5000.00"), BigDecimal.ZERO, BigDecimal.ZERO);
+        String token = bearer(utente);
+        LocalDate oggi = LocalDate.now();
+
+        CategoriaMovimento[] categorie = CategoriaMovimento.values();
+        for (CategoriaMovimento categoria : categorie) {
+            budgetService.setBudget(token, new BudgetRequest(categoria, new BigDecimal("10000.00"),
+                    oggi.getMonthValue(), oggi.getYear()));
+        }
+        registraUscita(token, categorie[0], "12.50", oggi);
+        registraUscita(token, categorie[0], "7.50", oggi);
+
+        // La prima richiesta riempie le cache dell'utente; conta la seconda
+        richiediTutti(token, oggi);
+        richiediTutti(token, oggi)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(categorie.length)))
+                .andExpect(jsonPath("$[?(@.categoria == '" + categorie[0] + "')].speso").value(20.0));
+
+        assertThat(contatoreQuery.conteggio())
+                .as("statement SQL per GET /budget/all con %d budget", categorie.length)
+                .isLessThanOrEqualTo(MAX_STATEMENT);
+    }
+
+    private ResultActions richiediTutti(String token, LocalDate mese) throws Exception {
+        return mockMvc.perform(get("/budget/all")
+                .header("Authorization", token)
+                .param("mese", String.valueOf(mese.getMonthValue()))
+                .param("anno", String.valueOf(mese.getYear())));
+    }
+
+    private void registraUscita(String token, CategoriaMovimento categoria, String importo, LocalDate data) {
+        MovimentoRequest request = new MovimentoRequest();
+        request.setImporto(new BigDecimal(importo));
+        request.setTipo(TipoMovimento.USCITA);
+        request.setCategoria(categoria);
+        request.setData(data);
+        request.setFonte("BANCA");
+        movimentoService.creaMovimento(token, request);
+    }
+}
@@ -0,0 +1,91 @@
+package com.myspendr.myspendr.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myspendr.myspendr.PostgresEmbeddedTest;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Contenuto dell'export su pochi movimenti; throughput e heap su storici grandi sono misurati da ExportBenchmark (load-test)
+class ExportMovimentiServiceTest extends PostgresEmbeddedTest {
+
+    private static final LocalDate GIORNO = LocalDate.of(2024, 3, 1);
+
+    @Autowired
+    private ExportMovimentiService exportMovimentiService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void csvConIntestazioneOrdineEdEscaping() throws Exception {
+        Long capitaleId = creaMovimenti();
+
+        String[] righe = esporta(capitaleId, ExportMovimentiService.Formato.CSV).split("\n", -1);
+
+        assertThat(righe).hasSize(5);
+        assertThat(righe[0]).isEqualTo("id,data,tipo,categoria,fonte,importo,descrizione");
+        assertThat(righe[1]).endsWith(",2024-03-01,ENTRATA,STIPENDIO,BANCA,1500.00,stipendio");
+        assertThat(righe[2]).endsWith(",2024-03-02,USCITA,CIBO,CONTANTI,12.50,\"pizza, birra e \"\"dolce\"\"\"");
+        assertThat(righe[3]).endsWith(",2024-03-03,USCITA,TRASPORTI,BANCA,3.00,");
+        assertThat(righe[4]).isEmpty();
+    }
+
+    @Test
+    void ndjsonUnaRigaPerMovimentoDelSoloCapitale() throws Exception {
+        Long capitaleId = creaMovimenti();
+        creaMovimenti();
+
+        String[] righe = esporta(capitaleId, ExportMovimentiService.Formato.NDJSON).split("\n");
+
+        assertThat(righe).hasSize(3);
+        JsonNode seconda = objectMapper.readTree(righe[1]);
+        assertThat(seconda.get("descrizione").asText()).isEqualTo("pizza, birra e \"dolce\"");
+        assertThat(seconda.get("importo").decimalValue()).isEqualByComparingTo("12.50");
+        assertThat(seconda.get("tipo").asText()).isEqualTo("USCITA");
+        assertThat(seconda.get("data").asText()).isEqualTo("2024-03-02");
+    }
+
+    @Test
+    void capitaleSenzaMovimentiEsportaSoloIntestazione() throws Exception {
+        UtenteAutenticato utente = creaUtente(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long righe = exportMovimentiService.esporta(utente.capitaleId(), ExportMovimentiService.Formato.CSV, out);
+
+        assertThat(righe).isZero();
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("id,data,tipo,categoria,fonte,importo,descrizione\n");
+    }
+
+    private String esporta(Long capitaleId, ExportMovimentiService.Formato formato) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long righe = exportMovimentiService.esporta(capitaleId, formato, out);
+        assertThat(righe).isEqualTo(3);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Inseriti in ordine inverso di data: l'export deve comunque uscire in ordine cronologico
+    private Long creaMovimenti() {
+        Long capitaleId = creaUtente(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO).capitaleId();
+        inserisci(capitaleId, "3.00", "USCITA", "TRASPORTI", null, GIORNO.plusDays(2), "BANCA");
+        inserisci(capitaleId, "12.50", "USCITA", "CIBO", "pizza, birra e \"dolce\"", GIORNO.plusDays(1), "CONTANTI");
+        inserisci(capitaleId, "1500.00", "ENTRATA", "STIPENDIO", "stipendio", GIORNO, "BANCA");
+        return capitaleId;
+    }
+
+    private void inserisci(Long capitaleId, String importo, String tipo, String categoria, String descrizione,
+                           LocalDate data, String fonte) {
+        jdbcTemplate.update("INSERT INTO movimenti (importo, tipo, categoria, descrizione, data, fonte, capitale_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                new BigDecimal(importo), tipo, categoria, descrizione, Date.valueOf(data), fonte, capitaleId);
+    }
+}
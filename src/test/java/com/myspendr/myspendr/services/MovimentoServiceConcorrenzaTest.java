@@ -0,0 +1,110 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.PostgresEmbeddedTest;
+import com.myspendr.myspendr.dto.MovimentoRequest;
+import com.myspendr.myspendr.dto.MovimentoResponse;
+import com.myspendr.myspendr.model.Capitale;
+import com.myspendr.myspendr.model.CategoriaMovimento;
+import com.myspendr.myspendr.model.TipoMovimento;
+import com.myspendr.myspendr.repositories.CapitaleRepository;
+import com.myspendr.myspendr.security.UtenteAutenticato;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Stress di creaMovimento/eliminaMovimento sullo stesso capitale: con l'UPDATE atomico dei saldi
+// nessuna variazione va persa, anche quando app e bot scrivono insieme
+class MovimentoServiceConcorrenzaTest extends PostgresEmbeddedTest {
+
+    private static final int THREAD = 16;
+    private static final int OPERAZIONI_PER_THREAD = 60;
+    private static final String[] FONTI = {"BANCA", "CONTANTI", "ALTRI"};
+
+    @Autowired
+    private MovimentoService movimentoService;
+
+    @Autowired
+    private CapitaleRepository capitaleRepository;
+
+    private record Creato(Long id, String fonte, BigDecimal delta) {
+    }
+
+    @Test
+    void saldiUgualiAllaSommaDelleVariazioniConcorrenti() throws Exception {
+        BigDecimal banca = new BigDecimal("1000.00");
+        BigDecimal contanti = new BigDecimal("200.00");
+        BigDecimal altri = new BigDecimal("50.00");
+        UtenteAutenticato utente = creaUtente(banca, contanti, altri);
+        String token = bearer(utente);
+
+        Map<String, BigDecimal> variazioni = new ConcurrentHashMap<>();
+        CountDownLatch partenza = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD);
+        List<Future<?>> lavori = new ArrayList<>();
+        for (int t = 0; t < THREAD; t++) {
+            Random random = new Random(t);
+            lavori.add(executor.submit(() -> {
+                partenza.await();
+                Deque<Creato> creati = new ArrayDeque<>();
+                for (int i = 0; i < OPERAZIONI_PER_THREAD; i++) {
+                    // Circa un'operazione su tre storna un movimento creato prima dallo stesso thread
+                    if (!creati.isEmpty() && random.nextInt(3) == 0) {
+                        Creato creato = creati.poll();
+                        movimentoService.eliminaMovimento(creato.id());
+                        variazioni.merge(creato.fonte(), creato.delta().negate(), BigDecimal::add);
+                    } else {
+                        MovimentoRequest request = richiestaCasuale(random);
+                        MovimentoResponse risposta = movimentoService.creaMovimento(token, request);
+                        BigDecimal delta = request.getTipo() == TipoMovimento.ENTRATA
+                                ? request.getImporto() : request.getImporto().negate();
+                        creati.add(new Creato(risposta.getId(), request.getFonte(), delta));
+                        variazioni.merge(request.getFonte(), delta, BigDecimal::add);
+                    }
+                }
+                return null;
+            }));
+        }
+        partenza.countDown();
+        for (Future<?> lavoro : lavori) {
+            lavoro.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        BigDecimal attesoBanca = banca.add(variazioni.getOrDefault("BANCA", BigDecimal.ZERO));
+        BigDecimal attesoContanti = contanti.add(variazioni.getOrDefault("CONTANTI", BigDecimal.ZERO));
+        BigDecimal attesoAltri = altri.add(variazioni.getOrDefault("ALTRI", BigDecimal.ZERO));
+
+        Capitale capitale = capitaleRepository.findById(utente.capitaleId()).orElseThrow();
+        assertThat(capitale.getContoBancario()).isEqualByComparingTo(attesoBanca);
+        assertThat(capitale.getLiquidita()).isEqualByComparingTo(attesoContanti);
+        assertThat(capitale.getAltriFondi()).isEqualByComparingTo(attesoAltri);
+        assertThat(capitale.getTotale()).isEqualByComparingTo(attesoBanca.add(attesoContanti).add(attesoAltri));
+    }
+
+    private static MovimentoRequest richiestaCasuale(Random random) {
+        MovimentoRequest request = new MovimentoRequest();
+        request.setImporto(BigDecimal.valueOf(100 + random.nextInt(50_000), 2));
+        request.setTipo(random.nextInt(4) == 0 ? TipoMovimento.ENTRATA : TipoMovimento.USCITA);
+        request.setCategoria(CategoriaMovimento.values()[random.nextInt(CategoriaMovimento.values().length)]);
+        request.setData(LocalDate.now().minusDays(random.nextInt(60)));
+        request.setFonte(FONTI[random.nextInt(FONTI.length)]);
+        request.setDescrizione("stress");
+        return request;
+    }
+}
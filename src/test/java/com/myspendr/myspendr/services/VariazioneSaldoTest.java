@@ -0,0 +1,39 @@
+package com.myspendr.myspendr.services;
+
+import com.myspendr.myspendr.model.TipoMovimento;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VariazioneSaldoTest {
+
+    @Test
+    void segnoEFonteDelMovimento() {
+        assertThat(VariazioneSaldo.di(TipoMovimento.ENTRATA, "banca", new BigDecimal("10.00")))
+                .isEqualTo(new VariazioneSaldo(new BigDecimal("10.00"), BigDecimal.ZERO, BigDecimal.ZERO));
+        assertThat(VariazioneSaldo.di(TipoMovimento.USCITA, "CONTANTI", new BigDecimal("2.50")))
+                .isEqualTo(new VariazioneSaldo(BigDecimal.ZERO, new BigDecimal("-2.50"), BigDecimal.ZERO));
+        assertThat(VariazioneSaldo.di(TipoMovimento.USCITA, "Altri", BigDecimal.ONE))
+                .isEqualTo(new VariazioneSaldo(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ONE.negate()));
+    }
+
+    @Test
+    void somma() {
+        VariazioneSaldo totale = VariazioneSaldo.NESSUNA
+                .piu(VariazioneSaldo.di(TipoMovimento.ENTRATA, "BANCA", new BigDecimal("100")))
+                .piu(VariazioneSaldo.di(TipoMovimento.USCITA, "BANCA", new BigDecimal("30")))
+                .piu(VariazioneSaldo.di(TipoMovimento.USCITA, "CONTANTI", new BigDecimal("5")));
+
+        assertThat(totale).isEqualTo(new VariazioneSaldo(new BigDecimal("70"), new BigDecimal("-5"), BigDecimal.ZERO));
+    }
+
+    @Test
+    void fonteSconosciutaRifiutata() {
+        assertThatThrownBy(() -> VariazioneSaldo.di(TipoMovimento.ENTRATA, "CRIPTO", BigDecimal.ONE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("CRIPTO");
+    }
+}
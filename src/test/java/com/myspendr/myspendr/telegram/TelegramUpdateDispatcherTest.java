@@ -0,0 +1,87 @@
+package com.myspendr.myspendr.telegram;
+
+import com.myspendr.myspendr.services.TelegramBotService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Messaggi e callback dello stesso utente finiscono sullo stesso worker, anche se il messaggio arriva da un gruppo
+class TelegramUpdateDispatcherTest {
+
+    private static final long UTENTE = 42;
+    // Con 4 worker la chat di gruppo e l'utente cadono su partizioni diverse
+    private static final long CHAT_GRUPPO = -1001;
+
+    private final TelegramBotService telegramBotService = mock(TelegramBotService.class);
+    private final CallBackHandler callBackHandler = mock(CallBackHandler.class);
+    private final Map<String, String> threadPerTipo = new ConcurrentHashMap<>();
+    private final TelegramUpdateDispatcher dispatcher = new TelegramUpdateDispatcher(
+            telegramBotService, callBackHandler, new SimpleMeterRegistry(), 4, 10, false, 30);
+
+    @AfterEach
+    void chiudi() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void messaggioDiGruppoECallbackDelloStessoUtenteSulloStessoWorker() {
+        doAnswer(i -> threadPerTipo.put("messaggio", Thread.currentThread().getName()))
+                .when(telegramBotService).handleUltimiCommand(anyLong());
+        doAnswer(i -> threadPerTipo.put("callback", Thread.currentThread().getName()))
+                .when(callBackHandler).handleCallback(any());
+
+        dispatcher.ricevi(messaggio(1, CHAT_GRUPPO, "/ultimi"));
+        dispatcher.ricevi(callback(2));
+
+        await().until(() -> threadPerTipo.size() == 2);
+        assertThat(threadPerTipo.get("messaggio")).isEqualTo(threadPerTipo.get("callback"));
+    }
+
+    private static Update messaggio(int updateId, long chatId, String testo) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        chat.setType("group");
+        Message message = new Message();
+        message.setChat(chat);
+        message.setFrom(mittente());
+        message.setText(testo);
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+
+    private static Update callback(int updateId) {
+        CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setId("cb-" + updateId);
+        callbackQuery.setFrom(mittente());
+        callbackQuery.setData("conferma");
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setCallbackQuery(callbackQuery);
+        return update;
+    }
+
+    private static User mittente() {
+        User user = new User();
+        user.setId(UTENTE);
+        user.setFirstName("Test");
+        user.setIsBot(false);
+        return user;
+    }
+}